@@ -0,0 +1,321 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Records per-agent trajectories for a sample of households and firms.
+ * Rows are buffered into columnar chunks on the simulation thread and handed
+ * to a dedicated writer thread through a bounded queue, so the simulation
+ * never waits on disk. When the queue is full the chunk is dropped and counted.
+ * Firms are identified by their stable id; firms that exit stop being traced and
+ * entrants join the sample at the configured rate.
+ */
+public class AgentTraceExporter {
+    public static final byte KIND_HOUSEHOLD = 0;
+    public static final byte KIND_FIRM = 1;
+
+    private static final int CHUNK_MAGIC = 0x41545243; // "ATRC"
+    private static final int CHUNK_VERSION = 1;
+    private static final String[] HOUSEHOLD_TYPES = {"AGGRESSIVE", "CONSERVATIVE", "REACTIVE"};
+    private static final String[] FIRM_SIZES = {"SMALL", "MEDIUM", "LARGE"};
+
+    private final Household[] sampledHouseholds;
+    private final int[] householdIds;
+    private Firm[] sampledFirms;
+    private int sampledFirmCount;
+    private final double sampleRate;
+    private final Random random;
+
+    private final BlockingQueue<TraceChunk> filledChunks;
+    private final BlockingQueue<TraceChunk> freeChunks;
+    private final TraceChunk endOfStream = new TraceChunk(0);
+    private final Path outputDir;
+    private final Thread writerThread;
+
+    private TraceChunk current;
+    private volatile long droppedChunks;
+    private volatile IOException writeFailure;
+
+    /**
+     * Creates an exporter and selects the traced agents.
+     *
+     * @param config     Simulation configuration with the trace.* settings
+     * @param households Household population to sample from
+     * @param firms      Firm population to sample from
+     * @throws IOException if the output directory cannot be created
+     */
+    public AgentTraceExporter(SimulationConfig config, List<Household> households, List<Firm> firms) throws IOException {
+        String mode = config.getTraceSampleMode();
+        boolean stratified = switch (mode) {
+            case "uniform" -> false;
+            case "stratified" -> true;
+            default -> throw new IllegalArgumentException("Unknown trace sample mode: " + mode);
+        };
+        double rate = Math.max(0.0, Math.min(1.0, config.getTraceSampleRate()));
+        this.sampleRate = rate;
+        this.random = new Random(config.getTraceSeed());
+
+        int[] householdStrata = new int[households.size()];
+        for (int i = 0; i < householdStrata.length; i++) {
+            householdStrata[i] = stratified ? householdTypeCode(households.get(i)) : 0;
+        }
+        this.householdIds = sample(householdStrata, rate, random);
+        this.sampledHouseholds = new Household[householdIds.length];
+        for (int i = 0; i < householdIds.length; i++) {
+            sampledHouseholds[i] = households.get(householdIds[i]);
+        }
+
+        int[] firmStrata = new int[firms.size()];
+        for (int i = 0; i < firmStrata.length; i++) {
+            firmStrata[i] = stratified ? firmSizeCode(firms.get(i)) : 0;
+        }
+        int[] firmIndices = sample(firmStrata, rate, random);
+        this.sampledFirms = new Firm[Math.max(1, firmIndices.length)];
+        for (int index : firmIndices) {
+            sampledFirms[sampledFirmCount++] = firms.get(index);
+        }
+
+        this.outputDir = Paths.get(config.getTraceOutputDir());
+        Files.createDirectories(outputDir);
+
+        // Every chunk is allocated up front: one being filled, one being written, the rest queued
+        int capacity = Math.max(1, config.getTraceQueueCapacity());
+        int chunkRows = Math.max(1, config.getTraceChunkRows());
+        this.filledChunks = new ArrayBlockingQueue<>(capacity + 1);
+        this.freeChunks = new ArrayBlockingQueue<>(capacity + 2);
+        for (int i = 0; i < capacity + 1; i++) {
+            freeChunks.add(new TraceChunk(chunkRows));
+        }
+        this.current = new TraceChunk(chunkRows);
+
+        this.writerThread = new Thread(this::drain, "agent-trace-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Appends one row per sampled agent for the given month.
+     *
+     * @param month Simulation month the rows belong to
+     */
+    public void record(int month) {
+        for (int i = 0; i < sampledHouseholds.length; i++) {
+            Household h = sampledHouseholds[i];
+            append(month, KIND_HOUSEHOLD, householdIds[i], (byte) householdTypeCode(h), (byte) -1, h.getLastSpending());
+        }
+        for (int i = sampledFirmCount - 1; i >= 0; i--) {
+            Firm f = sampledFirms[i];
+            if (!f.isActive()) {
+                // Exited firm: drop it from the sample by swapping in the last one
+                sampledFirms[i] = sampledFirms[--sampledFirmCount];
+                sampledFirms[sampledFirmCount] = null;
+                continue;
+            }
+            append(month, KIND_FIRM, f.getId(), (byte) firmSizeCode(f), (byte) strategyCode(f.getStrategy()), f.getResponsiveness());
+        }
+    }
+
+    /**
+     * Offers a newly entered firm to the sample; it is traced with the configured sample rate.
+     *
+     * @param firm Entrant
+     */
+    public void onFirmEntered(Firm firm) {
+        if (random.nextDouble() >= sampleRate) return;
+        if (sampledFirmCount == sampledFirms.length) {
+            sampledFirms = Arrays.copyOf(sampledFirms, sampledFirms.length * 2);
+        }
+        sampledFirms[sampledFirmCount++] = firm;
+    }
+
+    /**
+     * Flushes the last partial chunk and waits for the writer thread to finish.
+     */
+    public void close() {
+        try {
+            if (current.rows > 0) {
+                filledChunks.put(current);
+            }
+            filledChunks.put(endOfStream);
+            writerThread.join();
+        } catch (InterruptedException e) {
+            writerThread.interrupt();
+            Thread.currentThread().interrupt();
+        }
+        if (droppedChunks > 0) {
+            System.err.println("Warning: Agent trace dropped " + droppedChunks + " chunk(s) because the writer fell behind.");
+        }
+        if (writeFailure != null) {
+            System.err.println("Error writing agent trace: " + writeFailure.getMessage());
+        }
+    }
+
+    public int getSampledHouseholdCount() { return sampledHouseholds.length; }
+    public int getSampledFirmCount() { return sampledFirmCount; }
+    public long getDroppedChunks() { return droppedChunks; }
+
+    private void append(int month, byte kind, int agentId, byte stratum, byte strategy, double value) {
+        TraceChunk chunk = current;
+        int row = chunk.rows++;
+        chunk.month[row] = month;
+        chunk.kind[row] = kind;
+        chunk.agentId[row] = agentId;
+        chunk.stratum[row] = stratum;
+        chunk.strategy[row] = strategy;
+        chunk.value[row] = value;
+        if (chunk.rows == chunk.month.length) {
+            handOff();
+        }
+    }
+
+    private void handOff() {
+        // Never block the simulation: a full queue means the chunk is discarded
+        if (!filledChunks.offer(current)) {
+            droppedChunks++;
+            current.rows = 0;
+            return;
+        }
+        TraceChunk next = freeChunks.poll();
+        current = (next != null) ? next : new TraceChunk(current.month.length);
+    }
+
+    private void drain() {
+        int sequence = 0;
+        try {
+            while (true) {
+                TraceChunk chunk = filledChunks.take();
+                if (chunk == endOfStream) {
+                    return;
+                }
+                if (writeFailure == null) {
+                    try {
+                        writeChunk(chunk, outputDir.resolve(String.format("trace-%05d.chunk", sequence++)));
+                    } catch (IOException e) {
+                        writeFailure = e;
+                    }
+                }
+                chunk.rows = 0;
+                freeChunks.offer(chunk);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes a self-describing chunk: header, column schema, then each column contiguously.
+     */
+    private static void writeChunk(TraceChunk chunk, Path file) throws IOException {
+        int n = chunk.rows;
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file.toFile()), 1 << 16))) {
+            out.writeInt(CHUNK_MAGIC);
+            out.writeInt(CHUNK_VERSION);
+            out.writeInt(n);
+            out.writeInt(6);
+            writeColumnHeader(out, "month", "int32");
+            writeColumnHeader(out, "kind", "int8");
+            writeColumnHeader(out, "agent_id", "int32");
+            writeColumnHeader(out, "stratum", "int8");
+            writeColumnHeader(out, "strategy", "int8");
+            writeColumnHeader(out, "value", "float64");
+            for (int i = 0; i < n; i++) out.writeInt(chunk.month[i]);
+            out.write(chunk.kind, 0, n);
+            for (int i = 0; i < n; i++) out.writeInt(chunk.agentId[i]);
+            out.write(chunk.stratum, 0, n);
+            out.write(chunk.strategy, 0, n);
+            for (int i = 0; i < n; i++) out.writeDouble(chunk.value[i]);
+        }
+    }
+
+    private static void writeColumnHeader(DataOutputStream out, String name, String type) throws IOException {
+        out.writeUTF(name);
+        out.writeUTF(type);
+    }
+
+    /**
+     * Picks ceil(rate * n) indices from every stratum with a partial Fisher-Yates shuffle.
+     */
+    private static int[] sample(int[] strata, double rate, Random random) {
+        if (rate <= 0.0) return new int[0];
+
+        int maxStratum = 0;
+        for (int s : strata) maxStratum = Math.max(maxStratum, s);
+
+        List<Integer> selected = new ArrayList<>();
+        for (int stratum = 0; stratum <= maxStratum; stratum++) {
+            int count = 0;
+            for (int s : strata) if (s == stratum) count++;
+            if (count == 0) continue;
+
+            int[] members = new int[count];
+            int m = 0;
+            for (int i = 0; i < strata.length; i++) if (strata[i] == stratum) members[m++] = i;
+
+            int k = (int) Math.min(count, Math.ceil(rate * count));
+            for (int i = 0; i < k; i++) {
+                int j = i + random.nextInt(count - i);
+                int tmp = members[i];
+                members[i] = members[j];
+                members[j] = tmp;
+                selected.add(members[i]);
+            }
+        }
+
+        return selected.stream().mapToInt(Integer::intValue).sorted().toArray();
+    }
+
+    private static int householdTypeCode(Household h) {
+        return indexOf(HOUSEHOLD_TYPES, h.getType());
+    }
+
+    private static int firmSizeCode(Firm f) {
+        return indexOf(FIRM_SIZES, f.getSize());
+    }
+
+    private static int strategyCode(InvestmentStrategy strategy) {
+        if (strategy instanceof AggressiveInvestment) return 0;
+        if (strategy instanceof CautiousInvestment) return 1;
+        if (strategy instanceof OpportunisticInvestment) return 2;
+        return -1;
+    }
+
+    private static int indexOf(String[] values, String value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i].equals(value)) return i;
+        }
+        return values.length; // Unknown category gets its own stratum
+    }
+
+    /**
+     * Column buffers for a fixed number of trace rows.
+     */
+    private static final class TraceChunk {
+        final int[] month;
+        final byte[] kind;
+        final int[] agentId;
+        final byte[] stratum;
+        final byte[] strategy;
+        final double[] value;
+        int rows;
+
+        TraceChunk(int capacity) {
+            this.month = new int[capacity];
+            this.kind = new byte[capacity];
+            this.agentId = new int[capacity];
+            this.stratum = new byte[capacity];
+            this.strategy = new byte[capacity];
+            this.value = new double[capacity];
+        }
+    }
+}
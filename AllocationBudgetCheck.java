@@ -0,0 +1,134 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Properties;
+
+/**
+ * Allocation regression check for the quiet month loop.
+ * Runs a seeded simulation in quiet mode, warms it up so the JIT has settled,
+ * then measures the bytes allocated by all threads for each month via ThreadMXBean,
+ * so work handed to the fork-join pool is counted too. The measurement's own result
+ * array is calibrated out. Exits with status 1 if any month exceeds the budget, so
+ * CI can run it after compiling:
+ *
+ *   java AllocationBudgetCheck [budgetBytesPerMonth] [configFile]
+ *
+ * Banking is covered by passing a config file that enables it; the check then fails
+ * unless some loan book spans more than one batch when measurement starts, so the
+ * parallel passes are actually exercised. Tracing and firm dynamics allocate by
+ * design (chunk hand-off, new firms) and are switched off unless the config file
+ * turns them on.
+ */
+public class AllocationBudgetCheck {
+    private static final int WARMUP_MONTHS = 2000;
+    private static final int MEASURED_MONTHS = 200;
+    private static final int CALIBRATION_ROUNDS = 1000;
+
+    public static void main(String[] args) throws IOException {
+        long budget = args.length > 0 ? Long.parseLong(args[0]) : 0L;
+
+        Properties properties = new Properties();
+        properties.setProperty("agents.households", "2000");
+        properties.setProperty("agents.firms", "200");
+        properties.setProperty("simulation.seed", "42");
+        if (args.length > 1) {
+            try (FileInputStream fis = new FileInputStream(args[1])) {
+                properties.load(fis);
+            }
+        }
+        properties.setProperty("simulation.quiet", "true");
+
+        com.sun.management.ThreadMXBean threads = threadMXBean();
+        SimulationConfig config = new SimulationConfig(properties);
+        SimulationEnvironment env = new SimulationEnvironment(config);
+
+        for (int i = 0; i < WARMUP_MONTHS; i++) {
+            env.step();
+        }
+        requireMultipleBatches(env, config);
+
+        // Fork-join workers exist once the warm-up has run, so the id snapshot covers them
+        long[] threadIds = threads.getAllThreadIds();
+        long overhead = measurementOverhead(threads, threadIds);
+
+        long worst = 0;
+        long total = 0;
+        int overBudget = 0;
+        int skipped = 0;
+        for (int i = 0; i < MEASURED_MONTHS; i++) {
+            long before = allocatedBytes(threads, threadIds);
+            env.step();
+            long allocated = allocatedBytes(threads, threadIds) - before - overhead;
+            // A thread started or exited during the month (e.g. the pool added a worker): not steady state
+            if (threads.getThreadCount() != threadIds.length) {
+                threadIds = threads.getAllThreadIds();
+                overhead = measurementOverhead(threads, threadIds);
+                skipped++;
+                continue;
+            }
+            worst = Math.max(worst, allocated);
+            total += allocated;
+            if (allocated > budget) overBudget++;
+        }
+
+        System.out.printf("Allocation per month over %d months: worst %d bytes, total %d bytes, budget %d bytes%n",
+                MEASURED_MONTHS - skipped, worst, total, budget);
+        if (skipped > MEASURED_MONTHS / 10) {
+            System.err.println("Thread count changed in " + skipped + " month(s); too few steady-state months measured.");
+            System.exit(1);
+        }
+        if (overBudget > 0) {
+            System.err.println("Allocation budget exceeded in " + overBudget + " month(s).");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Fails the check if banking is on but no loan book spans more than one batch,
+     * since the fork-join passes would then never run while measuring.
+     */
+    private static void requireMultipleBatches(SimulationEnvironment env, SimulationConfig config) {
+        BankingSystem banking = env.getBankingSystem();
+        if (banking == null) return;
+        int largest = 0;
+        for (int i = 0; i < banking.getBanks().size(); i++) {
+            largest = Math.max(largest, banking.getBanks().get(i).getLoanCount());
+        }
+        if (largest <= config.getBankBatchSize()) {
+            System.err.println("Largest loan book holds " + largest + " loans, not more than one batch of "
+                    + config.getBankBatchSize() + "; the parallel passes would not be measured.");
+            System.exit(1);
+        }
+    }
+
+    // Total bytes allocated so far by the given threads; threads that have exited report -1 and are skipped
+    private static long allocatedBytes(com.sun.management.ThreadMXBean threads, long[] threadIds) {
+        long[] allocated = threads.getThreadAllocatedBytes(threadIds);
+        long total = 0;
+        for (long bytes : allocated) {
+            if (bytes > 0) total += bytes;
+        }
+        return total;
+    }
+
+    // Bytes charged to a back-to-back pair of readings, i.e. the result array of one reading
+    private static long measurementOverhead(com.sun.management.ThreadMXBean threads, long[] threadIds) {
+        long overhead = Long.MAX_VALUE;
+        for (int i = 0; i < CALIBRATION_ROUNDS; i++) {
+            long before = allocatedBytes(threads, threadIds);
+            overhead = Math.min(overhead, allocatedBytes(threads, threadIds) - before);
+        }
+        return overhead;
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            throw new IllegalStateException("Thread allocation measurement is not supported by this JVM.");
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        // Prime the measurement so its own lazy initialization is not charged to a month
+        threads.getCurrentThreadAllocatedBytes();
+        return threads;
+    }
+}
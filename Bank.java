@@ -0,0 +1,87 @@
+/**
+ * Bank agent holding a loan book for firms and households.
+ * Each month it reprices variable-rate loans when the policy rate has moved,
+ * collects payments, writes off defaults against its capital, and passes debt
+ * service on to its borrowers.
+ */
+public class Bank implements Agent {
+    private final int id;
+    private final LoanBook loanBook;
+    private final long seed;
+    private double capital;
+    private double lastPolicyRate = Double.NaN;
+
+    private double interestIncome;
+    private double losses;
+    private double newLending;
+    private int defaults;
+
+    public Bank(int id, double capital, int batchSize, long seed) {
+        this.id = id;
+        this.capital = capital;
+        this.loanBook = new LoanBook(batchSize);
+        this.seed = seed;
+    }
+
+    @Override
+    public void act(SimulationEnvironment env) {
+        BankingSystem banking = env.getBankingSystem();
+        newLending = 0.0;
+        double policyRate = env.getGovernment().getInterestRate();
+
+        // Only touch every variable-rate loan when monetary policy actually moved
+        if (policyRate != lastPolicyRate) {
+            loanBook.reprice(policyRate);
+            lastPolicyRate = policyRate;
+        }
+
+        loanBook.service(banking.getHouseholdCapacity(), banking.getDsrLimit(), banking.getBaseDefaultProbability(), seed, env.getCurrentMonth());
+        interestIncome = loanBook.getInterestIncome();
+        losses = loanBook.getLosses();
+        defaults = loanBook.getDefaults();
+        capital += interestIncome - losses;
+
+        // Borrowers pay before closed loans are dropped from the book
+        for (int i = 0; i < loanBook.size(); i++) {
+            if (loanBook.getStatus(i) != LoanBook.DEFAULTED) {
+                banking.chargeDebtService(loanBook.getType(i), loanBook.getBorrower(i), loanBook.getFirm(i),
+                        loanBook.getPayment(i));
+            }
+        }
+        loanBook.removeClosed();
+    }
+
+    /**
+     * Books a new loan at the current policy rate plus spread.
+     *
+     * @return Principal lent
+     */
+    public double lend(byte loanType, int borrowerId, Firm firm, double amount, double policyRate,
+                       double spread, boolean fixedRate, int termMonths) {
+        loanBook.add(loanType, borrowerId, firm, amount, policyRate, spread, fixedRate, termMonths);
+        newLending += amount;
+        return amount;
+    }
+
+    // Sets aside capital, e.g. to capitalize the bank against its initial loan book
+    public void injectCapital(double amount) {
+        capital += amount;
+    }
+
+    /**
+     * Returns capital relative to outstanding loans; banks with no loans are fully capitalized.
+     */
+    public double getCapitalRatio() {
+        double outstanding = loanBook.getOutstanding();
+        return outstanding > 0 ? capital / outstanding : 1.0;
+    }
+
+    public int getId() { return id; }
+    public double getCapital() { return capital; }
+    public double getOutstanding() { return loanBook.getOutstanding(); }
+    public int getLoanCount() { return loanBook.size(); }
+    public double getInterestIncome() { return interestIncome; }
+    public double getLosses() { return losses; }
+    public double getNewLending() { return newLending; }
+    public int getDefaults() { return defaults; }
+}
@@ -0,0 +1,257 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Credit sector of the simulation: a set of banks, the borrower capacities their
+ * loan books are checked against, and new loan origination.
+ * Each month the policy rate reaches agents through loan repricing, debt service
+ * (which reduces household disposable income and firm capital), defaults and
+ * the supply of new credit. Aggregate credit growth feeds into GDP growth, and
+ * changes in the household debt-service burden feed into consumer demand.
+ */
+public class BankingSystem {
+    private static final int FIRM_LOAN_TERM = 60;
+    private static final int MORTGAGE_TERM = 300;
+    private static final int CONSUMER_LOAN_TERM = 36;
+
+    private final List<Bank> banks = new ArrayList<>();
+    private final List<Household> households;
+    private final Random random;
+
+    private final double firmSpread;
+    private final double mortgageSpread;
+    private final double consumerSpread;
+    private final double firmOriginationRate;
+    private final double householdOriginationRate;
+    private final double mortgageShare;
+    private final double mortgageIncomeMultiple;
+    private final double firmCashFlowShare;
+    private final double minCapitalRatio;
+    private final double dsrLimit;
+    private final double baseDefaultProbability;
+
+    private final double[] householdCapacity;
+
+    private double outstanding;
+    private double creditGrowth;
+    private int monthlyDefaults;
+    private double monthlyLosses;
+    private double monthlyNewLending;
+    private double debtServiceShare = Double.NaN;
+    private double debtServiceEffect = 1.0;
+
+    /**
+     * Creates the banks and seeds their initial loan books.
+     *
+     * @param config     Simulation configuration with the bank.* settings
+     * @param households Household population (indexed by position)
+     * @param firms      Current firm population
+     * @param policyRate Policy rate at the start of the simulation
+     * @param random     Random source for origination
+     */
+    public BankingSystem(SimulationConfig config, List<Household> households, List<Firm> firms,
+                         double policyRate, Random random) {
+        this.households = households;
+        this.random = random;
+        this.firmSpread = config.getBankFirmSpread();
+        this.mortgageSpread = config.getBankMortgageSpread();
+        this.consumerSpread = config.getBankConsumerSpread();
+        this.firmOriginationRate = config.getBankFirmOriginationRate();
+        this.householdOriginationRate = config.getBankHouseholdOriginationRate();
+        this.mortgageShare = config.getBankMortgageShare();
+        this.mortgageIncomeMultiple = config.getBankMortgageIncomeMultiple();
+        this.firmCashFlowShare = config.getBankFirmCashFlowShare();
+        this.minCapitalRatio = config.getBankMinCapitalRatio();
+        this.dsrLimit = config.getBankDsrLimit();
+        this.baseDefaultProbability = config.getBankBaseDefaultProbability();
+        this.householdCapacity = new double[households.size()];
+
+        int bankCount = Math.max(1, config.getBankCount());
+        for (int i = 0; i < bankCount; i++) {
+            banks.add(new Bank(i, 0.0, config.getBankBatchSize(), random.nextLong()));
+        }
+
+        // Seed the initial books, then capitalize every bank against what it holds
+        double initialShare = config.getBankInitialLoanShare();
+        for (Firm firm : firms) {
+            if (random.nextDouble() < initialShare) lendToFirm(firm, policyRate, false);
+        }
+        for (int i = 0; i < households.size(); i++) {
+            if (random.nextDouble() < initialShare) lendToHousehold(i, policyRate, false);
+        }
+        for (Bank bank : banks) {
+            bank.injectCapital(config.getBankInitialCapitalRatio() * bank.getOutstanding());
+        }
+        this.outstanding = totalOutstanding();
+    }
+
+    /**
+     * Runs one month of the credit cycle: capacity snapshot, loan servicing by every
+     * bank, then origination of new loans.
+     *
+     * @param env Simulation environment
+     */
+    public void step(SimulationEnvironment env) {
+        prepareCapacity(env.getFirms());
+        for (int i = 0; i < households.size(); i++) {
+            households.get(i).setDebtService(0.0);
+        }
+
+        monthlyDefaults = 0;
+        monthlyLosses = 0.0;
+        for (int i = 0; i < banks.size(); i++) {
+            Bank bank = banks.get(i);
+            bank.act(env);
+            monthlyDefaults += bank.getDefaults();
+            monthlyLosses += bank.getLosses();
+        }
+
+        updateDebtServiceShare();
+        originate(env);
+
+        double previousOutstanding = outstanding;
+        outstanding = totalOutstanding();
+        creditGrowth = previousOutstanding > 0 ? (outstanding - previousOutstanding) / previousOutstanding : 0.0;
+    }
+
+    /**
+     * Recomputes the share of household income going to debt service. Demand responds to
+     * the change in disposable income, so a steady burden is neutral and the first month,
+     * which has no previous share to compare with, is too.
+     */
+    private void updateDebtServiceShare() {
+        double debtService = 0, income = 0;
+        for (int i = 0; i < households.size(); i++) {
+            Household household = households.get(i);
+            debtService += household.getDebtService();
+            income += household.getIncome();
+        }
+        double share = income > 0 ? Math.min(1.0, debtService / income) : 0.0;
+        debtServiceEffect = (Double.isNaN(debtServiceShare) || debtServiceShare >= 1.0)
+                ? 1.0 : (1.0 - share) / (1.0 - debtServiceShare);
+        debtServiceShare = share;
+    }
+
+    /**
+     * Applies a loan payment to the borrower it belongs to.
+     */
+    void chargeDebtService(byte loanType, int borrower, Firm firm, double payment) {
+        if (loanType == LoanBook.FIRM_LOAN) {
+            firm.payDebtService(payment);
+        } else {
+            Household household = households.get(borrower);
+            household.setDebtService(household.getDebtService() + payment);
+        }
+    }
+
+    /**
+     * Snapshots monthly repayment capacity for every borrower before any bank collects.
+     * Firms hold their own capacity, so the cost follows the live population; firms that
+     * have exited were zeroed when they were deactivated.
+     */
+    private void prepareCapacity(List<Firm> firms) {
+        for (int i = 0; i < firms.size(); i++) {
+            Firm firm = firms.get(i);
+            firm.setRepaymentCapacity(Math.max(0.0, firm.getCapital() * firmCashFlowShare));
+        }
+
+        for (int i = 0; i < householdCapacity.length; i++) {
+            householdCapacity[i] = households.get(i).getIncome();
+        }
+    }
+
+    /**
+     * Originates new loans. Credit demand rises with consumer demand and falls with the
+     * interest rate; each bank only lends while its capital ratio is above the minimum.
+     */
+    private void originate(SimulationEnvironment env) {
+        double policyRate = env.getGovernment().getInterestRate();
+        double demand = env.getEconomicIndicators().getConsumerDemand();
+        double interestEffect = Math.max(0.0, Math.min(1.0, 1.0 - (policyRate / 20.0)));
+        double demandScale = demand * interestEffect;
+
+        double before = totalNewLending();
+        List<Firm> firms = env.getFirms();
+        int firmLoans = draws(firms.size() * firmOriginationRate * demandScale);
+        for (int i = 0; i < firmLoans && !firms.isEmpty(); i++) {
+            lendToFirm(firms.get(random.nextInt(firms.size())), policyRate, true);
+        }
+        int householdLoans = draws(households.size() * householdOriginationRate * demandScale);
+        for (int i = 0; i < householdLoans && !households.isEmpty(); i++) {
+            lendToHousehold(random.nextInt(households.size()), policyRate, true);
+        }
+        monthlyNewLending = totalNewLending() - before;
+    }
+
+    private void lendToFirm(Firm firm, double policyRate, boolean checkCapital) {
+        Bank bank = pickBank(checkCapital);
+        if (bank == null) return;
+        double amount = bank.lend(LoanBook.FIRM_LOAN, firm.getId(), firm, firm.getThreshold(),
+                policyRate, firmSpread, false, FIRM_LOAN_TERM);
+        firm.receiveFinancing(amount);
+    }
+
+    private void lendToHousehold(int index, double policyRate, boolean checkCapital) {
+        Bank bank = pickBank(checkCapital);
+        if (bank == null) return;
+        double income = households.get(index).getIncome();
+        // Mortgages are fixed-rate; consumer loans float with the policy rate
+        if (random.nextDouble() < mortgageShare) {
+            bank.lend(LoanBook.MORTGAGE, index, null, income * mortgageIncomeMultiple,
+                    policyRate, mortgageSpread, true, MORTGAGE_TERM);
+        } else {
+            bank.lend(LoanBook.CONSUMER_LOAN, index, null, income * 2.0,
+                    policyRate, consumerSpread, false, CONSUMER_LOAN_TERM);
+        }
+    }
+
+    // Picks a random bank, or none if it is too thinly capitalized to lend
+    private Bank pickBank(boolean checkCapital) {
+        Bank bank = banks.get(random.nextInt(banks.size()));
+        return (!checkCapital || bank.getCapitalRatio() >= minCapitalRatio) ? bank : null;
+    }
+
+    // Whole expected draws plus one more with probability equal to the fractional part
+    private int draws(double expected) {
+        return (int) expected + (random.nextDouble() < expected % 1.0 ? 1 : 0);
+    }
+
+    private double totalOutstanding() {
+        double total = 0;
+        for (int i = 0; i < banks.size(); i++) total += banks.get(i).getOutstanding();
+        return total;
+    }
+
+    private double totalNewLending() {
+        double total = 0;
+        for (int i = 0; i < banks.size(); i++) total += banks.get(i).getNewLending();
+        return total;
+    }
+
+    public List<Bank> getBanks() { return banks; }
+    public double[] getHouseholdCapacity() { return householdCapacity; }
+    public double getDsrLimit() { return dsrLimit; }
+    public double getBaseDefaultProbability() { return baseDefaultProbability; }
+    public double getOutstanding() { return outstanding; }
+    public double getCreditGrowth() { return creditGrowth; }
+    public int getMonthlyDefaults() { return monthlyDefaults; }
+    public double getMonthlyLosses() { return monthlyLosses; }
+    public double getMonthlyNewLending() { return monthlyNewLending; }
+    public double getDebtServiceShare() { return debtServiceShare; }
+
+    /**
+     * Returns the factor by which this month's change in household debt service scales
+     * consumer demand: below 1 when a larger share of income goes to lenders.
+     */
+    public double getDebtServiceEffect() { return debtServiceEffect; }
+
+    /**
+     * Returns aggregate bank capital relative to aggregate outstanding loans.
+     */
+    public double getCapitalRatio() {
+        double capital = 0;
+        for (Bank bank : banks) capital += bank.getCapital();
+        return outstanding > 0 ? capital / outstanding : 1.0;
+    }
+}
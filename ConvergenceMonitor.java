@@ -0,0 +1,222 @@
+/**
+ * Watches the recent history of inflation, interest rate and GDP growth and
+ * detects when a run has settled (steady state or limit cycle) or diverged.
+ * History is kept in fixed-size ring buffers, so evaluation cost does not grow
+ * with the length of the run.
+ */
+public class ConvergenceMonitor {
+    private static final int INFLATION = 0;
+    private static final int INTEREST_RATE = 1;
+    private static final int GDP_GROWTH = 2;
+
+    private final int window;
+    private final double[] tolerance;
+    private final double maxInterestRate;
+    private final int trendHorizon;
+    private final double[][] history;
+    private final double slopeDenominator;
+    private int count;
+    private int next;
+
+    private ConvergenceStatus status = ConvergenceStatus.RUNNING;
+    private int detectedMonth = -1;
+    private String detail = "";
+
+    /**
+     * Creates a monitor from the convergence.* settings.
+     *
+     * @param config Simulation configuration
+     */
+    public ConvergenceMonitor(SimulationConfig config) {
+        this.window = Math.max(4, config.getConvergenceWindow());
+        this.tolerance = new double[] {
+                config.getConvergenceInflationTolerance(),
+                config.getConvergenceInterestRateTolerance(),
+                config.getConvergenceGDPGrowthTolerance()
+        };
+        this.maxInterestRate = config.getConvergenceMaxInterestRate();
+        this.trendHorizon = config.getConvergenceTrendHorizon();
+        this.history = new double[3][window];
+        // Sum of squared deviations of the month index from its mean, for the least-squares slope
+        this.slopeDenominator = (double) window * ((double) window * window - 1) / 12.0;
+    }
+
+    /**
+     * Records one month of indicators and checks for stationarity, a limit cycle or divergence.
+     * Once a condition is detected the status is frozen.
+     *
+     * @param month        Simulation month of the observation
+     * @param inflation    Inflation rate in percent
+     * @param interestRate Policy interest rate in percent
+     * @param gdpGrowth    Month-over-month GDP growth in percent
+     * @return Current status, RUNNING if nothing has been detected
+     */
+    public ConvergenceStatus evaluate(int month, double inflation, double interestRate, double gdpGrowth) {
+        if (status != ConvergenceStatus.RUNNING) return status;
+
+        history[INFLATION][next] = inflation;
+        history[INTEREST_RATE][next] = interestRate;
+        history[GDP_GROWTH][next] = gdpGrowth;
+        next = (next + 1) % window;
+        if (count < window) count++;
+
+        // Divergence is checked every month, the other tests need a full window
+        if (!Double.isFinite(inflation) || !Double.isFinite(interestRate) || !Double.isFinite(gdpGrowth)) {
+            return detect(ConvergenceStatus.DIVERGED, month, "indicators became non-finite");
+        }
+        if (Math.abs(interestRate) > maxInterestRate) {
+            return detect(ConvergenceStatus.DIVERGED, month,
+                    String.format("interest rate %.2f%% exceeded bound of %.2f%%", interestRate, maxInterestRate));
+        }
+        if (count < window) return status;
+
+        String trend = findRunawayTrend();
+        if (trend != null) {
+            return detect(ConvergenceStatus.DIVERGED, month, trend);
+        }
+        if (isStationary()) {
+            return detect(ConvergenceStatus.STATIONARY, month,
+                    "indicators stable over the last " + window + " months");
+        }
+        int period = findCyclePeriod();
+        if (period > 0) {
+            return detect(ConvergenceStatus.LIMIT_CYCLE, month,
+                    "indicators repeat every " + period + " months");
+        }
+        return status;
+    }
+
+    public ConvergenceStatus getStatus() { return status; }
+    public int getDetectedMonth() { return detectedMonth; }
+    public String getDetail() { return detail; }
+
+    private ConvergenceStatus detect(ConvergenceStatus newStatus, int month, String reason) {
+        this.status = newStatus;
+        this.detectedMonth = month;
+        this.detail = reason;
+        return newStatus;
+    }
+
+    /**
+     * A series is stationary when the means of the older and newer half of the window
+     * differ by less than its tolerance and its least-squares trend across the window
+     * adds up to less than its tolerance. Inflation and the interest rate must also stay
+     * within their tolerance over the newer half, which rejects a hump centred in the
+     * window whose halves average out. GDP growth is only held to the mean and trend
+     * tests, which are robust to its random monthly shocks.
+     */
+    private boolean isStationary() {
+        int half = window / 2;
+        for (int s = 0; s < history.length; s++) {
+            double older = 0, newer = 0;
+            double newerMin = Double.POSITIVE_INFINITY, newerMax = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < half; i++) {
+                older += at(s, i);
+                double value = at(s, window - 1 - i);
+                newer += value;
+                newerMin = Math.min(newerMin, value);
+                newerMax = Math.max(newerMax, value);
+            }
+            if (Math.abs(older - newer) / half >= tolerance[s]) return false;
+            if (Math.abs(slope(s) * (window - 1)) >= tolerance[s]) return false;
+            if (s != GDP_GROWTH && newerMax - newerMin >= tolerance[s]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Flags a runaway interest rate before it reaches maxInterestRate: the rate moves in the
+     * same direction every month of the window, by more than its tolerance in total, its
+     * steps in the newer half are no smaller than in the older half, and continuing at the
+     * window's average pace would cross the bound within trendHorizon months. A rate that
+     * is still settling either slows down or is projected to stay far inside the bound.
+     *
+     * @return Description of the trend, or null if there is none
+     */
+    private String findRunawayTrend() {
+        int s = INTEREST_RATE;
+        double first = at(s, 1) - at(s, 0);
+        if (first == 0) return null;
+        int half = window / 2;
+        double olderSteps = 0, newerSteps = 0;
+        for (int i = 1; i < window; i++) {
+            double step = at(s, i) - at(s, i - 1);
+            if (step * first <= 0) return null;
+            if (i <= half) olderSteps += Math.abs(step); else newerSteps += Math.abs(step);
+        }
+
+        double change = at(s, window - 1) - at(s, 0);
+        double olderMean = olderSteps / half;
+        double newerMean = newerSteps / (window - 1 - half);
+        if (Math.abs(change) < tolerance[s] || newerMean < 0.9 * olderMean) return null;
+
+        double perMonth = change / (window - 1);
+        double current = at(s, window - 1);
+        double monthsToBound = (perMonth > 0 ? maxInterestRate - current : current + maxInterestRate)
+                / Math.abs(perMonth);
+        if (monthsToBound > trendHorizon) return null;
+        return String.format("interest rate %s by %.4f per month for %d months, projected to cross %.2f%% within %d months",
+                perMonth > 0 ? "rising" : "falling", Math.abs(perMonth), window,
+                perMonth > 0 ? maxInterestRate : -maxInterestRate, (int) Math.ceil(monthsToBound));
+    }
+
+    // Least-squares slope of a series over the window, per month
+    private double slope(int series) {
+        double mean = 0;
+        for (int i = 0; i < window; i++) mean += at(series, i);
+        mean /= window;
+        double centre = (window - 1) / 2.0;
+        double covariance = 0;
+        for (int i = 0; i < window; i++) covariance += (i - centre) * (at(series, i) - mean);
+        return covariance / slopeDenominator;
+    }
+
+    /**
+     * Looks for the shortest period p (2..window/2) for which inflation and the interest rate
+     * repeat within tolerance across the whole window and at least one of them swings by more
+     * than its tolerance within a period. GDP growth is left out because its random shock
+     * never repeats exactly.
+     *
+     * @return Detected period, or 0 if there is none
+     */
+    private int findCyclePeriod() {
+        for (int p = 2; p <= window / 2; p++) {
+            if (repeatsWithPeriod(INFLATION, p) && repeatsWithPeriod(INTEREST_RATE, p)
+                    && (swings(INFLATION, p) || swings(INTEREST_RATE, p))) {
+                return p;
+            }
+        }
+        return 0;
+    }
+
+    // Compares every cycle with the first one, so a slow drift cannot pass as a cycle one step at a time
+    private boolean repeatsWithPeriod(int series, int period) {
+        for (int i = period; i < window; i++) {
+            if (Math.abs(at(series, i) - at(series, i % period)) >= tolerance[series]) return false;
+        }
+        return true;
+    }
+
+    // A series that barely moves is settling, not cycling
+    private boolean swings(int series, int period) {
+        double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < period; i++) {
+            min = Math.min(min, at(series, i));
+            max = Math.max(max, at(series, i));
+        }
+        return max - min >= tolerance[series];
+    }
+
+    // Value at position i of the window, 0 being the oldest observation
+    private double at(int series, int i) {
+        return history[series][(next + i) % window];
+    }
+
+    /**
+     * Describes the outcome for run reports.
+     */
+    public String describe() {
+        if (status == ConvergenceStatus.RUNNING) return "no convergence detected";
+        return status + " at month " + detectedMonth + " (" + detail + ")";
+    }
+}
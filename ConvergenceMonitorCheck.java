@@ -0,0 +1,55 @@
+import java.util.Properties;
+
+/**
+ * Regression check for the convergence monitor.
+ * Feeds synthetic indicator series with a known outcome through a monitor with the
+ * default convergence.* settings and exits with status 1 if any is classified wrongly,
+ * so CI can run it after compiling:
+ *
+ *   java ConvergenceMonitorCheck
+ */
+public class ConvergenceMonitorCheck {
+    private static final int MONTHS = 600;
+    private static int failures;
+
+    public static void main(String[] args) {
+        // Rises and falls back over the first 30 months, so the half-window means agree while it moves
+        check("hump", ConvergenceStatus.STATIONARY, 31,
+                month -> month <= 30 ? 5.0 + 0.5 * Math.sin(Math.PI * month / 30.0) : 5.0, 0.0);
+        // Falls by a full point every month, so it crosses the -100% bound within the horizon
+        check("linear runaway", ConvergenceStatus.DIVERGED, 0, month -> 30.0 - month, 0.0);
+        check("exponential approach", ConvergenceStatus.STATIONARY, 0, month -> 2.0 + 3.0 * Math.pow(0.9, month), 0.0);
+        // Converges so slowly that its steps barely shrink across one window
+        check("slow approach", ConvergenceStatus.STATIONARY, 0, month -> 2.0 + 3.0 * Math.pow(0.995, month), 0.0);
+        check("period-4 cycle", ConvergenceStatus.LIMIT_CYCLE, 0, month -> (month % 4 < 2) ? 4.0 : 6.0, 0.0);
+        check("flat with noisy growth", ConvergenceStatus.STATIONARY, 0, month -> 3.0, 0.1);
+
+        if (failures > 0) {
+            System.err.println(failures + " convergence check(s) failed.");
+            System.exit(1);
+        }
+    }
+
+    private interface Series {
+        double valueAt(int month);
+    }
+
+    /**
+     * Runs the series as both inflation and interest rate, with GDP growth alternating by
+     * the given amplitude, and compares the final status with the expected one. The status
+     * must not be reached before notBefore.
+     */
+    private static void check(String name, ConvergenceStatus expected, int notBefore, Series series,
+                              double growthNoise) {
+        ConvergenceMonitor monitor = new ConvergenceMonitor(new SimulationConfig(new Properties()));
+        ConvergenceStatus status = ConvergenceStatus.RUNNING;
+        for (int month = 1; month <= MONTHS && status == ConvergenceStatus.RUNNING; month++) {
+            double value = series.valueAt(month);
+            status = monitor.evaluate(month, value, value, (month % 2 == 0) ? growthNoise : -growthNoise);
+        }
+        boolean passed = status == expected && monitor.getDetectedMonth() >= notBefore;
+        if (!passed) failures++;
+        System.out.printf("%-24s expected %-12s got %s%n", name, expected,
+                status == ConvergenceStatus.RUNNING ? status : monitor.describe());
+    }
+}
@@ -0,0 +1,7 @@
+public enum ConvergenceStatus {
+    RUNNING,         // Nothing detected yet
+    STATIONARY,      // Indicators settled at a steady state
+    LIMIT_CYCLE,     // Indicators repeat with a fixed period
+    DIVERGED,        // Indicators ran away or became non-finite
+    HORIZON_REACHED  // Ran for the full configured number of months
+}
\ No newline at end of file
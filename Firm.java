@@ -1,12 +1,29 @@
+import java.util.Random;
+
 public class Firm implements Agent {
+    private final int id;
     private String size;
     private double responsiveness;
     private InvestmentStrategy strategy;
+    private double capital;
+    private double threshold;
+    private final double operatingCost;
+    private final double shockVolatility;
+    private final Random random;
+    private boolean active = true;
+    private double repaymentCapacity;
 
-    public Firm(String size, double responsiveness, InvestmentStrategy strategy) {
+    public Firm(int id, String size, double responsiveness, InvestmentStrategy strategy, double capital, double threshold,
+                double operatingCost, double shockVolatility, Random random) {
+        this.id = id;
         this.size = size;
         this.responsiveness = responsiveness;
         this.strategy = strategy;
+        this.capital = capital;
+        this.threshold = threshold;
+        this.operatingCost = operatingCost;
+        this.shockVolatility = shockVolatility;
+        this.random = random;
     }
 
     public double getResponsiveness() {
@@ -21,6 +38,7 @@ public class Firm implements Agent {
 
         adjustBehavior(demandFactor, inflation);
         strategy.invest(this, interestRate, inflation); // Firms invest dynamically
+        updateCapital(demandFactor, interestRate);
     }
 
     public void adjustBehavior(double demandFactor, double inflation) {
@@ -28,7 +46,42 @@ public class Firm implements Agent {
         responsiveness = Math.max(0.75, Math.min(1.25, responsiveness * (1.0 + marketPressure)));
     }
 
+    // Earnings grow with demand and responsiveness; financing costs follow the annual interest rate.
+    // A fixed operating cost and an idiosyncratic shock let individual firms fail even in good times.
+    private void updateCapital(double demandFactor, double interestRate) {
+        double returnRate = 0.01 * demandFactor * responsiveness - interestRate / 1200.0;
+        if (shockVolatility > 0) {
+            returnRate += random.nextGaussian() * shockVolatility;
+        }
+        capital += capital * returnRate - operatingCost;
+    }
+
+    // Loan proceeds add to capital; debt service is paid out of it
+    public void receiveFinancing(double amount) { capital += amount; }
+
+    public void payDebtService(double amount) { capital -= amount; }
+
+    // Marks the firm as exited so components still holding a reference can skip it;
+    // an exited firm can no longer service its loans
+    public void deactivate() {
+        active = false;
+        repaymentCapacity = 0.0;
+    }
+
+    // Monthly amount available for debt service, snapshotted by the banking system
+    public void setRepaymentCapacity(double repaymentCapacity) { this.repaymentCapacity = repaymentCapacity; }
+
+    public double getRepaymentCapacity() { return repaymentCapacity; }
+
+    public int getId() { return id; }
+
     public String getSize() { return size; }
 
+    public InvestmentStrategy getStrategy() { return strategy; }
+
+    public double getCapital() { return capital; }
+
+    public double getThreshold() { return threshold; }
 
+    public boolean isActive() { return active; }
 }
\ No newline at end of file
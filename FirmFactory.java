@@ -5,13 +5,33 @@ import java.util.Random;
 public class FirmFactory {
     private final int totalFirms;
     private final double pSmall, pMedium, pLarge;
-    private static final Random random = new Random();
+    private final double operatingCostRate, shockVolatility;
+    private static final Random defaultRandom = new Random();
+    private final Random random;
+    private int nextId;
 
     public FirmFactory(int totalFirms, double pSmall, double pMedium, double pLarge) {
+        this(totalFirms, pSmall, pMedium, pLarge, defaultRandom);
+    }
+
+    // Accepts a dedicated Random so seeded scenarios are reproducible
+    public FirmFactory(int totalFirms, double pSmall, double pMedium, double pLarge, Random random) {
+        this(totalFirms, pSmall, pMedium, pLarge, 0.0, 0.0, random);
+    }
+
+    /**
+     * @param operatingCostRate Monthly operating cost of each firm as a fraction of its survival threshold
+     * @param shockVolatility   Standard deviation of each firm's monthly idiosyncratic return shock
+     */
+    public FirmFactory(int totalFirms, double pSmall, double pMedium, double pLarge,
+                       double operatingCostRate, double shockVolatility, Random random) {
         this.totalFirms = totalFirms;
         this.pSmall = pSmall;
         this.pMedium = pMedium;
         this.pLarge = pLarge;
+        this.operatingCostRate = operatingCostRate;
+        this.shockVolatility = shockVolatility;
+        this.random = random;
     }
 
     public List<Firm> createFirms() {
@@ -33,6 +53,18 @@ public class FirmFactory {
         return firms;
     }
 
+    /**
+     * Creates a single new market entrant, drawing its size from the configured size mix.
+     *
+     * @return New firm with a fresh id
+     */
+    public Firm createEntrant() {
+        double draw = random.nextDouble();
+        if (draw < pSmall) return createFirm("SMALL");
+        if (draw < pSmall + pMedium) return createFirm("MEDIUM");
+        return createFirm("LARGE");
+    }
+
     private Firm createFirm(String size) {
         double capital, threshold, priceFlex;
         InvestmentStrategy strategy;
@@ -54,11 +86,12 @@ public class FirmFactory {
                 capital = 50000 + random.nextDouble() * 50000;
                 threshold = 10000 + random.nextDouble() * 5000;
                 priceFlex = 0.1;
-                strategy = new OpportunisticInvestment(); // Ensure this class exists
+                strategy = new OpportunisticInvestment(random); // Ensure this class exists
             }
             default -> throw new IllegalArgumentException("Unknown firm size: " + size);
         }
 
-        return new Firm(size, priceFlex, strategy);
+        return new Firm(nextId++, size, priceFlex, strategy, capital, threshold,
+                threshold * operatingCostRate, shockVolatility, random);
     }
 }
\ No newline at end of file
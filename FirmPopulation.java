@@ -0,0 +1,73 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * Dense, array-backed storage for a changing firm population.
+ * Removal swaps the last firm into the freed slot, so it is O(1) and the array
+ * never has holes to skip during iteration. Iteration order is therefore not id
+ * order. Periodic compaction trims unused capacity after the population shrinks.
+ */
+public class FirmPopulation extends AbstractList<Firm> implements RandomAccess {
+    private static final int MIN_CAPACITY = 16;
+
+    private Firm[] firms;
+    private int size;
+
+    public FirmPopulation(Collection<Firm> initialFirms) {
+        this.firms = initialFirms.toArray(new Firm[Math.max(MIN_CAPACITY, initialFirms.size())]);
+        this.size = initialFirms.size();
+    }
+
+    @Override
+    public Firm get(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        return firms[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean add(Firm firm) {
+        if (size == firms.length) {
+            firms = Arrays.copyOf(firms, firms.length + (firms.length >> 1));
+        }
+        firms[size++] = firm;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Removes the firm at the given index by moving the last firm into its slot.
+     * Callers sweeping the population should iterate from the end.
+     *
+     * @param index Slot to free
+     * @return The removed firm
+     */
+    public Firm swapRemove(int index) {
+        Firm removed = get(index);
+        int last = --size;
+        firms[index] = firms[last];
+        firms[last] = null; // Let the removed firm be collected
+        modCount++;
+        return removed;
+    }
+
+    /**
+     * Releases capacity that is no longer needed, keeping a quarter of headroom.
+     */
+    public void compact() {
+        int target = Math.max(MIN_CAPACITY, size + (size >> 2));
+        if (firms.length > 2 * target) {
+            firms = Arrays.copyOf(firms, target);
+        }
+    }
+
+    public int capacity() {
+        return firms.length;
+    }
+}
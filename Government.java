@@ -22,6 +22,11 @@ public class Government {
         return instance;
     }
 
+    // Creates an independent instance outside the Singleton so concurrent scenarios do not share policy state
+    public static Government createDetached(double initialInterestRate, double targetInflation, PolicyStrategy strategy) {
+        return new Government(initialInterestRate, targetInflation, strategy);
+    }
+
     public static Government getInstance() {
         if (instance == null) {
             throw new IllegalStateException("Government instance has not been created yet. Use createInstance() first.");
@@ -4,8 +4,12 @@ public class Household implements Agent {
     private double income;
     private double savingsRate;
     private double interestSensitivity;
+    private String type;
+    private double lastSpending;
+    private double debtService;
 
-    public Household(double income, double savingsRate, double interestSensitivity) {
+    public Household(String type, double income, double savingsRate, double interestSensitivity) {
+        this.type = type;
         this.income = income;
         this.savingsRate = savingsRate;
         this.interestSensitivity = interestSensitivity;
@@ -26,6 +30,18 @@ public class Household implements Agent {
         inflationSensitivityFactor = Math.max(0.3, inflationSensitivityFactor); // Prevent spending from dropping too low
 
         double spendingFactor = Math.max(0.5, employmentRate / 100);
-        double spending = income * (1 - savingsRate) * (1 - interestSensitivity * (interestRate / 100)) * spendingFactor * inflationSensitivityFactor;
+        double disposableIncome = Math.max(0.0, income - debtService); // Loan payments come out of income first
+        double spending = disposableIncome * (1 - savingsRate) * (1 - interestSensitivity * (interestRate / 100)) * spendingFactor * inflationSensitivityFactor;
+        lastSpending = spending;
     }
+
+    public double getIncome() { return income; }
+
+    public double getDebtService() { return debtService; }
+
+    public void setDebtService(double debtService) { this.debtService = debtService; }
+
+    public String getType() { return type; }
+
+    public double getLastSpending() { return lastSpending; }
 }
\ No newline at end of file
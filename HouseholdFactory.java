@@ -3,11 +3,18 @@ import java.util.List;
 import java.util.Random;
 
 public class HouseholdFactory implements AgentFactory {
-    private static final Random random = new Random();
+    private static final Random defaultRandom = new Random();
+    private final Random random;
     private final double pAggressive, pConservative, pReactive;
     private final int totalHouseholds;
 
     public HouseholdFactory(int totalHouseholds, double pAggressive, double pConservative, double pReactive) {
+        this(totalHouseholds, pAggressive, pConservative, pReactive, defaultRandom);
+    }
+
+    // Accepts a dedicated Random so seeded scenarios are reproducible
+    public HouseholdFactory(int totalHouseholds, double pAggressive, double pConservative, double pReactive, Random random) {
+        this.random = random;
         this.totalHouseholds = totalHouseholds;
         this.pAggressive = pAggressive;
         this.pConservative = pConservative;
@@ -22,13 +29,13 @@ public class HouseholdFactory implements AgentFactory {
         int nReact = totalHouseholds - nAgg - nCon;
 
         for (int i = 0; i < nAgg; i++) {
-            households.add(createAgent(0.05, 0.4)); // Aggressive: Low savings, high sensitivity
+            households.add(createAgent("AGGRESSIVE", 0.05, 0.4)); // Aggressive: Low savings, high sensitivity
         }
         for (int i = 0; i < nCon; i++) {
-            households.add(createAgent(0.3, 0.1)); // Conservative: High savings, low sensitivity
+            households.add(createAgent("CONSERVATIVE", 0.3, 0.1)); // Conservative: High savings, low sensitivity
         }
         for (int i = 0; i < nReact; i++) {
-            households.add(createAgent(0.15, 0.25)); // Reactive: Moderate savings, medium sensitivity
+            households.add(createAgent("REACTIVE", 0.15, 0.25)); // Reactive: Moderate savings, medium sensitivity
         }
 
         return households;
@@ -36,15 +43,15 @@ public class HouseholdFactory implements AgentFactory {
 
     @Override
     public Household createAgent() {
-        return createAgent(0.15, 0.25); // Default household characteristics
+        return createAgent("REACTIVE", 0.15, 0.25); // Default household characteristics
     }
 
-    private Household createAgent(double savingsRateBase, double sensitivityBase) {
+    private Household createAgent(String type, double savingsRateBase, double sensitivityBase) {
         double income = generateIncome();
         double savingsRate = savingsRateBase + (0.02 * random.nextDouble());
         double interestSensitivity = sensitivityBase + (0.02 * random.nextDouble());
 
-        return new Household(income, savingsRate, interestSensitivity);
+        return new Household(type, income, savingsRate, interestSensitivity);
     }
 
     private double generateIncome() {
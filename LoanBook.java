@@ -0,0 +1,352 @@
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loan book stored as parallel primitive arrays, one slot per loan.
+ * Monthly repricing, amortization and default checks run as batched passes over
+ * contiguous index ranges, with batches processed in parallel on the common
+ * fork-join pool. Each batch writes only its own slots and its own accumulator,
+ * so no locking is needed. Batch tasks and accumulators are sized in grow() and
+ * reused every month, and no thread ever blocks in a fork-join join (which would
+ * allocate a wait node and may start a spare worker), so a pass allocates nothing
+ * on any thread.
+ * Closed loans are swap-removed afterwards to keep the arrays dense.
+ */
+public class LoanBook {
+    public static final byte FIRM_LOAN = 0;
+    public static final byte MORTGAGE = 1;
+    public static final byte CONSUMER_LOAN = 2;
+
+    public static final byte ACTIVE = 0;
+    public static final byte REPAID = 1;
+    public static final byte DEFAULTED = 2;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final int REPRICE = 0;
+    private static final int SERVICE = 1;
+
+    private final int batchSize;
+    private int size;
+    private int nextLoanId;
+    private double outstanding;
+
+    private int[] loanId = new int[INITIAL_CAPACITY];
+    private byte[] type = new byte[INITIAL_CAPACITY];
+    private int[] borrower = new int[INITIAL_CAPACITY];
+    private Firm[] firm = new Firm[INITIAL_CAPACITY];
+    private boolean[] fixedRate = new boolean[INITIAL_CAPACITY];
+    private double[] spread = new double[INITIAL_CAPACITY];
+    private double[] rate = new double[INITIAL_CAPACITY];
+    private double[] principal = new double[INITIAL_CAPACITY];
+    private int[] remainingMonths = new int[INITIAL_CAPACITY];
+    private double[] payment = new double[INITIAL_CAPACITY];
+    private byte[] status = new byte[INITIAL_CAPACITY];
+
+    // Per-batch accumulators and tasks, one slot per batch the arrays can hold
+    private double[] batchInterest;
+    private double[] batchRepaid;
+    private double[] batchLosses;
+    private int[] batchDefaults;
+    private BatchTask[] batchTasks;
+    private final AtomicInteger pendingBatches = new AtomicInteger();
+
+    // Inputs of the pass in progress, read by the batch tasks
+    private int passKind;
+    private double passPolicyRate;
+    private double[] passHouseholdCapacity;
+    private double passDsrLimit;
+    private double passBasePd;
+    private long passSeed;
+    private int passMonth;
+
+    // Totals of the last service pass
+    private double interestIncome;
+    private double principalRepaid;
+    private double losses;
+    private int defaults;
+
+    public LoanBook(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+        sizeBatches(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Books a new loan.
+     *
+     * @param loanType     FIRM_LOAN, MORTGAGE or CONSUMER_LOAN
+     * @param borrowerId   Firm id for firm loans, household index otherwise
+     * @param borrowingFirm Borrowing firm for firm loans, null otherwise
+     * @param amount       Principal lent
+     * @param policyRate   Current policy rate in percent
+     * @param loanSpread   Spread over the policy rate in percent
+     * @param isFixedRate  Fixed-rate loans keep their origination rate
+     * @param termMonths   Amortization term
+     */
+    public void add(byte loanType, int borrowerId, Firm borrowingFirm, double amount, double policyRate,
+                    double loanSpread, boolean isFixedRate, int termMonths) {
+        if (size == loanId.length) grow();
+        int i = size++;
+        loanId[i] = nextLoanId++;
+        type[i] = loanType;
+        borrower[i] = borrowerId;
+        firm[i] = borrowingFirm;
+        fixedRate[i] = isFixedRate;
+        spread[i] = loanSpread;
+        rate[i] = Math.max(0.0, policyRate + loanSpread);
+        principal[i] = amount;
+        remainingMonths[i] = Math.max(1, termMonths);
+        payment[i] = 0.0;
+        status[i] = ACTIVE;
+        outstanding += amount;
+    }
+
+    /**
+     * Resets the rate of every variable-rate loan to the policy rate plus its spread.
+     *
+     * @param policyRate New policy rate in percent
+     */
+    public void reprice(double policyRate) {
+        passKind = REPRICE;
+        passPolicyRate = policyRate;
+        runPass();
+    }
+
+    /**
+     * Collects one annuity payment per loan and checks each borrower for default.
+     * A borrower with no repayment capacity (e.g. an exited firm) always defaults;
+     * otherwise the monthly default probability rises with the debt-service ratio
+     * above dsrLimit. Draws are hashed from (seed, loan id, month), so the outcome
+     * does not depend on how batches are scheduled. The month's totals are available
+     * from the getters afterwards.
+     *
+     * Firm loans use the repayment capacity snapshotted on the borrowing firm.
+     *
+     * @param householdCapacity Monthly repayment capacity indexed by household index
+     * @param dsrLimit          Debt-service ratio above which default risk escalates
+     * @param basePd            Baseline monthly default probability
+     * @param seed              Seed for the default draws
+     * @param month             Current simulation month
+     */
+    public void service(double[] householdCapacity, double dsrLimit, double basePd, long seed, int month) {
+        passKind = SERVICE;
+        passHouseholdCapacity = householdCapacity;
+        passDsrLimit = dsrLimit;
+        passBasePd = basePd;
+        passSeed = seed;
+        passMonth = month;
+        runPass();
+        passHouseholdCapacity = null;
+
+        // Summed in batch order so the totals do not depend on scheduling
+        interestIncome = 0.0;
+        principalRepaid = 0.0;
+        losses = 0.0;
+        defaults = 0;
+        for (int b = 0, batches = batchCount(); b < batches; b++) {
+            interestIncome += batchInterest[b];
+            principalRepaid += batchRepaid[b];
+            losses += batchLosses[b];
+            defaults += batchDefaults[b];
+        }
+        outstanding = Math.max(0.0, outstanding - principalRepaid - losses);
+    }
+
+    /**
+     * Removes repaid and defaulted loans by swapping the last loan into each freed slot.
+     * Must run after payments from the last service pass have been applied.
+     *
+     * @return Number of loans removed
+     */
+    public int removeClosed() {
+        int removed = 0;
+        for (int i = size - 1; i >= 0; i--) {
+            if (status[i] != ACTIVE) {
+                moveLoan(--size, i);
+                firm[size] = null; // Do not keep exited firms reachable
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Returns the total principal outstanding, maintained incrementally.
+     */
+    public double getOutstanding() {
+        return outstanding;
+    }
+
+    public double getInterestIncome() { return interestIncome; }
+    public double getPrincipalRepaid() { return principalRepaid; }
+    public double getLosses() { return losses; }
+    public int getDefaults() { return defaults; }
+
+    public int size() { return size; }
+    public byte getType(int i) { return type[i]; }
+    public int getBorrower(int i) { return borrower[i]; }
+    public Firm getFirm(int i) { return firm[i]; }
+    public double getPayment(int i) { return payment[i]; }
+    public byte getStatus(int i) { return status[i]; }
+
+    private int batchCount() {
+        return (size + batchSize - 1) / batchSize;
+    }
+
+    /**
+     * Runs the current pass over all batches. Batches after the first are forked to the
+     * common pool; the caller runs the first, takes back any batch no worker has picked
+     * up yet, and spins until the batches taken by workers have finished.
+     */
+    private void runPass() {
+        int batches = batchCount();
+        if (batches == 0) return;
+        pendingBatches.set(batches - 1);
+        for (int b = 1; b < batches; b++) {
+            batchTasks[b].reinitialize();
+            batchTasks[b].fork();
+        }
+        runBatch(0);
+        for (int b = batches - 1; b >= 1; b--) {
+            if (batchTasks[b].tryUnfork()) {
+                batchTasks[b].invoke();
+            }
+        }
+        while (pendingBatches.get() > 0) {
+            Thread.onSpinWait();
+        }
+        for (int b = 1; b < batches; b++) {
+            Throwable failure = batchTasks[b].getException();
+            if (failure != null) {
+                throw new IllegalStateException("Loan book batch " + b + " failed", failure);
+            }
+        }
+    }
+
+    private void runBatch(int b) {
+        int start = b * batchSize;
+        int end = Math.min(size, start + batchSize);
+        if (passKind == REPRICE) {
+            for (int i = start; i < end; i++) {
+                if (!fixedRate[i]) {
+                    rate[i] = Math.max(0.0, passPolicyRate + spread[i]);
+                }
+            }
+        } else {
+            serviceBatch(b, start, end);
+        }
+    }
+
+    private void serviceBatch(int b, int start, int end) {
+        double interest = 0.0, repaid = 0.0, lost = 0.0;
+        int defaulted = 0;
+        for (int i = start; i < end; i++) {
+            double capacity = (type[i] == FIRM_LOAN)
+                    ? firm[i].getRepaymentCapacity()
+                    : passHouseholdCapacity[borrower[i]];
+
+            double monthlyRate = rate[i] / 1200.0;
+            int n = remainingMonths[i];
+            double due = (monthlyRate > 0)
+                    ? principal[i] * monthlyRate / (1.0 - Math.pow(1.0 + monthlyRate, -n))
+                    : principal[i] / n;
+
+            double dsr = (capacity > 0) ? due / capacity : Double.POSITIVE_INFINITY;
+            double pd = passBasePd + 0.5 * Math.max(0.0, dsr - passDsrLimit);
+            if (capacity <= 0 || uniform(passSeed, loanId[i], passMonth) < pd) {
+                status[i] = DEFAULTED;
+                payment[i] = 0.0;
+                lost += principal[i];
+                defaulted++;
+                continue;
+            }
+
+            double interestDue = principal[i] * monthlyRate;
+            double principalDue = Math.min(principal[i], due - interestDue);
+            principal[i] -= principalDue;
+            remainingMonths[i] = n - 1;
+            payment[i] = due;
+            interest += interestDue;
+            repaid += principalDue;
+            if (remainingMonths[i] == 0 || principal[i] <= 1e-9) {
+                status[i] = REPAID;
+            }
+        }
+        batchInterest[b] = interest;
+        batchRepaid[b] = repaid;
+        batchLosses[b] = lost;
+        batchDefaults[b] = defaulted;
+    }
+
+    private void moveLoan(int from, int to) {
+        loanId[to] = loanId[from];
+        type[to] = type[from];
+        borrower[to] = borrower[from];
+        firm[to] = firm[from];
+        fixedRate[to] = fixedRate[from];
+        spread[to] = spread[from];
+        rate[to] = rate[from];
+        principal[to] = principal[from];
+        remainingMonths[to] = remainingMonths[from];
+        payment[to] = payment[from];
+        status[to] = status[from];
+    }
+
+    private void grow() {
+        int capacity = loanId.length + (loanId.length >> 1);
+        loanId = Arrays.copyOf(loanId, capacity);
+        type = Arrays.copyOf(type, capacity);
+        borrower = Arrays.copyOf(borrower, capacity);
+        firm = Arrays.copyOf(firm, capacity);
+        fixedRate = Arrays.copyOf(fixedRate, capacity);
+        spread = Arrays.copyOf(spread, capacity);
+        rate = Arrays.copyOf(rate, capacity);
+        principal = Arrays.copyOf(principal, capacity);
+        remainingMonths = Arrays.copyOf(remainingMonths, capacity);
+        payment = Arrays.copyOf(payment, capacity);
+        status = Arrays.copyOf(status, capacity);
+        sizeBatches(capacity);
+    }
+
+    // Allocates accumulators and tasks for every batch a book of this capacity can hold
+    private void sizeBatches(int capacity) {
+        int batches = (capacity + batchSize - 1) / batchSize;
+        int existing = batchTasks == null ? 0 : batchTasks.length;
+        batchInterest = new double[batches];
+        batchRepaid = new double[batches];
+        batchLosses = new double[batches];
+        batchDefaults = new int[batches];
+        batchTasks = (batchTasks == null) ? new BatchTask[batches] : Arrays.copyOf(batchTasks, batches);
+        for (int b = existing; b < batches; b++) {
+            batchTasks[b] = new BatchTask(b);
+        }
+    }
+
+    // SplitMix64 finalizer: a stateless uniform draw in [0, 1) for a loan and month
+    private static double uniform(long seed, int id, int month) {
+        long z = seed + 0x9E3779B97F4A7C15L * (((long) id << 20) ^ month);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (z >>> 11) * 0x1.0p-53;
+    }
+
+    @SuppressWarnings("serial") // Never serialized; RecursiveAction is Serializable only by inheritance
+    private final class BatchTask extends RecursiveAction {
+        private final int batch;
+
+        BatchTask(int batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                runBatch(batch);
+            } finally {
+                pendingBatches.decrementAndGet();
+            }
+        }
+    }
+}
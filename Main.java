@@ -1,15 +1,30 @@
 public class Main {
+    private static final String DEFAULT_CONFIG_FILE = "src/config.txt";
+
+    /**
+     * Usage:
+     *   java Main [configFile]                  run a single simulation
+     *   java Main --serve [port] [configFile]   start the loopback scenario server
+     */
     public static void main(String[] args) {
         try {
+            if (args.length > 0 && args[0].equals("--serve")) {
+                String configFile = args.length > 2 ? args[2] : DEFAULT_CONFIG_FILE;
+                SimulationConfig config = new SimulationConfig(configFile);
+                int port = args.length > 1 ? Integer.parseInt(args[1]) : config.getServerPort();
+                serve(config, port);
+                return;
+            }
+
             // Load configuration file dynamically
-            String configFile = "src/config.txt";
+            String configFile = args.length > 0 ? args[0] : DEFAULT_CONFIG_FILE;
             SimulationConfig config = new SimulationConfig(configFile);
 
             // Initialize government policy using createInstance()
             Government.createInstance(
                     config.getInitialInterestRate(),
                     config.getInflationTarget(),
-                    new MonetaryPolicyStrategy()
+                    new MonetaryPolicyStrategy(!config.isQuiet())
             );
 
             // Create simulation environment with config file input
@@ -17,7 +32,16 @@ public class Main {
             sim.run(); // Execute simulation
 
         } catch (Exception e) {
-            System.err.println("Simulation failed: " + e.getMessage()); // Print error message instead of failing silently
+            System.err.println("Simulation failed: " + e); // Print error message instead of failing silently
+            e.printStackTrace();
+            System.exit(1);
         }
     }
+
+    private static void serve(SimulationConfig config, int port) throws Exception {
+        ScenarioServer server = new ScenarioServer(config, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "scenario-server-shutdown"));
+        server.start();
+        System.out.println("Scenario server listening on 127.0.0.1:" + server.getPort());
+    }
 }
\ No newline at end of file
@@ -10,8 +10,8 @@ public class MarketStatistics {
         double totalResponsiveness = 0;
         double weightedResponsivenessTotal = 0;
 
-        for (Firm f : firms) {
-            double responsiveness = f.getResponsiveness(); // ✅ Ensure method exists first
+        for (int i = 0; i < firms.size(); i++) { // Indexed loop avoids allocating an iterator every month
+            double responsiveness = firms.get(i).getResponsiveness(); // ✅ Ensure method exists first
             totalResponsiveness += responsiveness;
             weightedResponsivenessTotal += responsiveness * responsiveness; // Self-weighting effect
         }
@@ -1,5 +1,14 @@
 public class MonetaryPolicyStrategy implements PolicyStrategy {
     private final double scalingFactor = 0.5; // Determines how aggressively we adjust rates
+    private final boolean verbose;
+
+    public MonetaryPolicyStrategy() {
+        this(true);
+    }
+
+    public MonetaryPolicyStrategy(boolean verbose) {
+        this.verbose = verbose;
+    }
 
     @Override
     public void adjustInterestRate(Government government, EconomicIndicators indicators) {
@@ -15,7 +24,9 @@ public class MonetaryPolicyStrategy implements PolicyStrategy {
         interestRate += interestAdjustment;
         government.setInterestRate(interestRate);
 
-        System.out.printf("Monetary policy applied. Inflation gap: %.2f | Adjustment: %.2f | New Interest Rate: %.2f%n",
-                inflationGap, interestAdjustment, interestRate);
+        if (verbose) {
+            System.out.printf("Monetary policy applied. Inflation gap: %.2f | Adjustment: %.2f | New Interest Rate: %.2f%n",
+                    inflationGap, interestAdjustment, interestRate);
+        }
     }
 }
\ No newline at end of file
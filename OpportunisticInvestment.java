@@ -1,8 +1,20 @@
+import java.util.Random;
+
 public class OpportunisticInvestment implements InvestmentStrategy {
+    private final Random random;
+
+    public OpportunisticInvestment() {
+        this(new Random());
+    }
+
+    public OpportunisticInvestment(Random random) {
+        this.random = random;
+    }
+
     @Override
     public void invest(Firm firm, double interestRate, double inflation) {
         double demandFactor = firm.getResponsiveness();
-        double volatilityFactor = Math.random() * 0.2 + 0.9; // Randomized flexibility
+        double volatilityFactor = random.nextDouble() * 0.2 + 0.9; // Randomized flexibility
         firm.adjustBehavior(demandFactor * volatilityFactor, inflation);
     }
 }
\ No newline at end of file
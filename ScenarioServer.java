@@ -0,0 +1,293 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Long-lived simulation service bound to the loopback interface.
+ * Each request is handled on its own (virtual, when available) thread, while the
+ * simulations themselves run on a bounded compute pool. Monthly indicators are
+ * streamed back as one JSON object per line while the scenario is running.
+ *
+ * <pre>
+ * POST /scenario?months=24&amp;seed=7   body: config overrides in properties format
+ * GET  /health
+ * </pre>
+ */
+public class ScenarioServer {
+    private final SimulationConfig baseConfig;
+    private final HttpServer server;
+    private final ExecutorService requestExecutor;
+    private final ThreadPoolExecutor computePool;
+    private final Semaphore admission;
+    private final AtomicLong scenarioIds = new AtomicLong();
+
+    /**
+     * Creates a server that runs scenarios on top of the given base configuration.
+     *
+     * @param baseConfig Configuration every scenario starts from
+     * @param port       Loopback port to listen on (0 picks a free port)
+     * @throws IOException if the socket cannot be bound
+     */
+    public ScenarioServer(SimulationConfig baseConfig, int port) throws IOException {
+        this.baseConfig = baseConfig;
+
+        int computeThreads = Math.max(1, baseConfig.getServerComputeThreads());
+        int queueCapacity = Math.max(0, baseConfig.getServerQueueCapacity());
+        AtomicInteger threadCount = new AtomicInteger();
+        // Running plus queued scenarios; anything beyond is rejected before the response starts
+        this.admission = new Semaphore(computeThreads + queueCapacity);
+        // A permit comes back as soon as a scenario's result is available, slightly before its worker
+        // is free again, so the queue leaves room for one extra task per worker
+        this.computePool = new ThreadPoolExecutor(computeThreads, computeThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(computeThreads + queueCapacity),
+                r -> new Thread(r, "scenario-compute-" + threadCount.incrementAndGet()));
+
+        this.requestExecutor = newRequestExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.server.setExecutor(requestExecutor);
+        this.server.createContext("/scenario", this::handleScenario);
+        this.server.createContext("/health", this::handleHealth);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests and waits briefly for running scenarios to finish.
+     */
+    public void stop() {
+        server.stop(1);
+        computePool.shutdown();
+        requestExecutor.shutdown();
+        try {
+            if (!computePool.awaitTermination(30, TimeUnit.SECONDS)) {
+                computePool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            computePool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        sendPlain(exchange, 200, "ok\n");
+    }
+
+    private void handleScenario(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendPlain(exchange, 405, "Use POST with config overrides in the request body\n");
+                return;
+            }
+
+            SimulationConfig scenarioConfig;
+            try {
+                scenarioConfig = buildScenarioConfig(exchange);
+            } catch (IllegalArgumentException e) {
+                sendPlain(exchange, 400, e.getMessage() + "\n");
+                return;
+            }
+
+            if (!admission.tryAcquire()) {
+                sendPlain(exchange, 503, "Scenario queue is full, retry later\n");
+                return;
+            }
+            try {
+                runAdmitted(exchange, scenarioConfig);
+            } finally {
+                admission.release();
+            }
+        }
+    }
+
+    /**
+     * Builds the scenario, streams it from the compute pool and writes the final status line.
+     * The caller holds an admission permit for the whole call.
+     */
+    private void runAdmitted(HttpExchange exchange, SimulationConfig scenarioConfig) throws IOException {
+        // Built before the response starts so an invalid config still gets a 400
+        SimulationEnvironment env;
+        try {
+            env = new SimulationEnvironment(scenarioConfig);
+        } catch (IllegalArgumentException e) {
+            sendPlain(exchange, 400, e.getMessage() + "\n");
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+        OutputStream out = exchange.getResponseBody();
+        Future<String> result;
+        try {
+            exchange.sendResponseHeaders(200, 0); // Chunked: indicators are streamed as they are produced
+            result = computePool.submit(() -> runScenario(env, out));
+        } catch (IOException | RuntimeException | Error e) {
+            env.close(); // Never reached a compute thread, so nothing else releases its trace writer
+            if (e instanceof RejectedExecutionException) {
+                writeLine(out, "{\"status\":\"failed\",\"error\":\"" + escape(String.valueOf(e.getMessage())) + "\"}");
+                return;
+            }
+            throw e;
+        }
+
+        try {
+            writeLine(out, result.get());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                return; // Client went away; nothing left to report to
+            }
+            writeLine(out, "{\"status\":\"failed\",\"error\":\"" + escape(String.valueOf(cause)) + "\"}");
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs one scenario on a compute thread, streaming each month to the client.
+     *
+     * @return Final status line with the number of months simulated and why the run stopped
+     */
+    private String runScenario(SimulationEnvironment env, OutputStream out) {
+        try {
+            env.addListener(e -> {
+                try {
+                    writeLine(out, formatMonth(e));
+                } catch (IOException ioe) {
+                    throw new UncheckedIOException(ioe); // Aborts the run when the client disconnects
+                }
+            });
+            env.run();
+
+            ConvergenceMonitor monitor = env.getConvergenceMonitor();
+            String convergence = (monitor == null || monitor.getStatus() == ConvergenceStatus.RUNNING) ? ""
+                    : ",\"convergence\":\"" + escape(monitor.describe()) + "\"";
+            return "{\"status\":\"completed\",\"months\":" + env.getMonthsSimulated()
+                    + ",\"stopReason\":\"" + env.getTerminationReason() + "\"" + convergence + "}";
+        } finally {
+            env.close(); // run() closes it too, but not if the listener setup failed first
+        }
+    }
+
+    private SimulationConfig buildScenarioConfig(HttpExchange exchange) throws IOException {
+        Properties overrides = new Properties();
+        try (InputStreamReader reader = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+            overrides.load(reader);
+        }
+        for (String key : overrides.stringPropertyNames()) {
+            if (key.startsWith("trace.")) {
+                throw new IllegalArgumentException("Trace settings cannot be overridden per scenario: " + key);
+            }
+        }
+
+        URI uri = exchange.getRequestURI();
+        String query = uri.getRawQuery();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                int eq = pair.indexOf('=');
+                String key = eq < 0 ? pair : pair.substring(0, eq);
+                String value = eq < 0 ? "" : pair.substring(eq + 1);
+                switch (key) {
+                    case "months" -> overrides.setProperty("months_to_simulate", String.valueOf(parsePositive(key, value)));
+                    case "seed" -> overrides.setProperty("simulation.seed", String.valueOf(parseLong(key, value)));
+                    case "" -> { }
+                    default -> throw new IllegalArgumentException("Unknown query parameter: " + key);
+                }
+            }
+        }
+
+        // Concurrent scenarios must not interleave their reports on the server console
+        overrides.setProperty("simulation.quiet", "true");
+        // Concurrent scenarios must not write their trace chunks into the same directory
+        if (baseConfig.isTraceEnabled()) {
+            overrides.setProperty("trace.output.dir",
+                    Paths.get(baseConfig.getTraceOutputDir(), "scenario-" + scenarioIds.incrementAndGet()).toString());
+        }
+        // Malformed values must fail the request rather than silently run on defaults
+        return baseConfig.withOverrides(overrides).withStrictParsing();
+    }
+
+    private static int parsePositive(String key, String value) {
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed > 0) return parsed;
+        } catch (NumberFormatException e) {
+            // Fall through to the error below
+        }
+        throw new IllegalArgumentException("Invalid value for " + key + ": " + value);
+    }
+
+    private static long parseLong(String key, String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for " + key + ": " + value);
+        }
+    }
+
+    private static String formatMonth(SimulationEnvironment env) {
+        EconomicIndicators indicators = env.getEconomicIndicators();
+        return String.format(Locale.ROOT,
+                "{\"month\":%d,\"inflation\":%.6f,\"interestRate\":%.6f,\"gdp\":%.6f,\"employmentRate\":%.6f,\"consumerDemand\":%.6f,\"supplyLevel\":%.6f,\"firms\":%d,\"creditOutstanding\":%.2f}",
+                env.getCurrentMonth(), indicators.getCurrentInflation(), env.getGovernment().getInterestRate(),
+                indicators.getGDP(), indicators.getEmploymentRate(), indicators.getConsumerDemand(),
+                indicators.getSupplyLevel(), env.getFirms().size(),
+                env.getBankingSystem() != null ? env.getBankingSystem().getOutstanding() : 0.0);
+    }
+
+    private static void writeLine(OutputStream out, String line) throws IOException {
+        out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static void sendPlain(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", " ");
+    }
+
+    /**
+     * Uses one virtual thread per request when the runtime supports it (Java 21+),
+     * otherwise falls back to a cached pool of platform threads.
+     */
+    private static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+}
@@ -4,6 +4,7 @@ import java.util.Properties;
 
 public class SimulationConfig {
     private Properties properties;
+    private boolean strict;
 
     public SimulationConfig(String configFile) {
         properties = new Properties();
@@ -14,11 +15,41 @@ public class SimulationConfig {
         }
     }
 
+    public SimulationConfig(Properties properties) {
+        this.properties = new Properties();
+        this.properties.putAll(properties);
+    }
+
+    /**
+     * Returns a copy of this configuration with the given keys replaced.
+     *
+     * @param overrides Keys and values that take precedence over this configuration
+     * @return New configuration; this instance is left unchanged
+     */
+    public SimulationConfig withOverrides(Properties overrides) {
+        SimulationConfig copy = new SimulationConfig(properties);
+        copy.properties.putAll(overrides);
+        copy.strict = strict;
+        return copy;
+    }
+
+    /**
+     * Returns a copy of this configuration that rejects malformed values instead of
+     * reporting them and falling back to the default.
+     *
+     * @return New configuration whose getters throw IllegalArgumentException on bad values
+     */
+    public SimulationConfig withStrictParsing() {
+        SimulationConfig copy = new SimulationConfig(properties);
+        copy.strict = true;
+        return copy;
+    }
+
     private double getDouble(String key, double defaultValue) {
         try {
             return Double.parseDouble(properties.getProperty(key, String.valueOf(defaultValue)));
         } catch (NumberFormatException e) {
-            System.err.println("Invalid format for key: " + key);
+            reportInvalid(key);
             return defaultValue;
         }
     }
@@ -27,11 +58,40 @@ public class SimulationConfig {
         try {
             return Integer.parseInt(properties.getProperty(key, String.valueOf(defaultValue)));
         } catch (NumberFormatException e) {
-            System.err.println("Invalid format for key: " + key);
+            reportInvalid(key);
             return defaultValue;
         }
     }
 
+    private long getLong(String key, long defaultValue) {
+        try {
+            return Long.parseLong(properties.getProperty(key, String.valueOf(defaultValue)).trim());
+        } catch (NumberFormatException e) {
+            reportInvalid(key);
+            return defaultValue;
+        }
+    }
+
+    private boolean getBoolean(String key, boolean defaultValue) {
+        String value = properties.getProperty(key, String.valueOf(defaultValue)).trim();
+        if (strict && !value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+            reportInvalid(key);
+        }
+        return Boolean.parseBoolean(value);
+    }
+
+    // Strict configurations reject the value; lenient ones report it and fall back to the default
+    private void reportInvalid(String key) {
+        if (strict) {
+            throw new IllegalArgumentException("Invalid value for " + key + ": " + properties.getProperty(key));
+        }
+        System.err.println("Invalid format for key: " + key);
+    }
+
+    private String getString(String key, String defaultValue) {
+        return properties.getProperty(key, defaultValue).trim();
+    }
+
     public int getMonthsToSimulate() {
         return getInt("months_to_simulate", 12); // Default to 12 if missing
     }
@@ -43,6 +103,9 @@ public class SimulationConfig {
     public double getInitialInflation() {
         return getDouble("initial.inflation", 2.0); // Default to 2.0% if missing
     }
+    public boolean hasSimulationSeed() { return properties.containsKey("simulation.seed"); }
+    public long getSimulationSeed() { return getLong("simulation.seed", 0L); }
+    public boolean isQuiet() { return getBoolean("simulation.quiet", false); }
     public int getStartMonth() { return getInt("start.month", 1); }
     public double getInitialInterestRate() { return getDouble("initial.interestRate", 0.02); }
     public double getInflationTarget() { return getDouble("inflation.target", 0.02); }
@@ -64,4 +127,55 @@ public class SimulationConfig {
     public double getFirmSmallProb() { return getDouble("firm.small.prob", 0.5); }
     public double getFirmMediumProb() { return getDouble("firm.medium.prob", 0.3); }
     public double getFirmLargeProb() { return getDouble("firm.large.prob", 0.2); }
+
+    // Firm entry and exit
+    public boolean isFirmDynamicsEnabled() { return getBoolean("firm.dynamics.enabled", false); }
+    public double getFirmEntryRate() { return getDouble("firm.entry.rate", 0.01); }
+    public double getFirmExitThresholdFactor() { return getDouble("firm.exit.thresholdFactor", 1.0); }
+    public int getFirmCompactionInterval() { return getInt("firm.compaction.interval", 12); }
+    public double getFirmOperatingCost() { return getDouble("firm.operatingCost", 0.02); }
+    public double getFirmShockVolatility() { return getDouble("firm.shock.volatility", 0.08); }
+
+    // Agent trace export
+    public boolean isTraceEnabled() { return getBoolean("trace.enabled", false); }
+    public String getTraceSampleMode() { return getString("trace.sample.mode", "uniform"); }
+    public double getTraceSampleRate() { return getDouble("trace.sample.rate", 0.01); }
+    public long getTraceSeed() { return getLong("trace.seed", 42L); }
+    public String getTraceOutputDir() { return getString("trace.output.dir", "trace"); }
+    public int getTraceChunkRows() { return getInt("trace.chunk.rows", 65536); }
+    public int getTraceQueueCapacity() { return getInt("trace.queue.capacity", 8); }
+
+    // Banking and credit
+    public boolean isBankingEnabled() { return getBoolean("banking.enabled", false); }
+    public int getBankCount() { return getInt("bank.count", 1); }
+    public int getBankBatchSize() { return getInt("bank.batch.size", 4096); }
+    public double getBankInitialLoanShare() { return getDouble("bank.initialLoanShare", 0.3); }
+    public double getBankInitialCapitalRatio() { return getDouble("bank.capitalRatio.initial", 0.12); }
+    public double getBankMinCapitalRatio() { return getDouble("bank.capitalRatio.min", 0.08); }
+    public double getBankFirmSpread() { return getDouble("bank.spread.firm", 2.0); }
+    public double getBankMortgageSpread() { return getDouble("bank.spread.mortgage", 1.5); }
+    public double getBankConsumerSpread() { return getDouble("bank.spread.consumer", 5.0); }
+    public double getBankFirmOriginationRate() { return getDouble("bank.origination.firm", 0.02); }
+    public double getBankHouseholdOriginationRate() { return getDouble("bank.origination.household", 0.01); }
+    public double getBankMortgageShare() { return getDouble("bank.mortgage.share", 0.5); }
+    public double getBankMortgageIncomeMultiple() { return getDouble("bank.mortgage.incomeMultiple", 36.0); }
+    public double getBankFirmCashFlowShare() { return getDouble("bank.firm.cashFlowShare", 0.02); }
+    public double getBankDsrLimit() { return getDouble("bank.default.dsrLimit", 0.4); }
+    public double getBankBaseDefaultProbability() { return getDouble("bank.default.basePd", 0.001); }
+    public double getBankCreditSensitivity() { return getDouble("bank.creditSensitivity", 0.1); }
+
+    // Convergence monitoring and early termination
+    public boolean isConvergenceEnabled() { return getBoolean("convergence.enabled", false); }
+    public String getConvergenceAction() { return getString("convergence.action", "stop"); }
+    public int getConvergenceWindow() { return getInt("convergence.window", 24); }
+    public double getConvergenceInflationTolerance() { return getDouble("convergence.tolerance.inflation", 0.05); }
+    public double getConvergenceInterestRateTolerance() { return getDouble("convergence.tolerance.interestRate", 0.05); }
+    public double getConvergenceGDPGrowthTolerance() { return getDouble("convergence.tolerance.gdpGrowth", 0.25); }
+    public double getConvergenceMaxInterestRate() { return getDouble("convergence.maxInterestRate", 100.0); }
+    public int getConvergenceTrendHorizon() { return getInt("convergence.trendHorizon", 240); }
+
+    // Scenario server
+    public int getServerPort() { return getInt("server.port", 8088); }
+    public int getServerComputeThreads() { return getInt("server.compute.threads", Runtime.getRuntime().availableProcessors()); }
+    public int getServerQueueCapacity() { return getInt("server.queue.capacity", 64); }
 }
\ No newline at end of file
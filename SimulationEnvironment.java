@@ -1,3 +1,4 @@
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -10,11 +11,14 @@ import java.util.concurrent.TimeUnit;
 
 public class SimulationEnvironment {
     private List<Household> households;
-    private List<Firm> firms;
+    private FirmPopulation firms;
+    private FirmFactory firmFactory;
     private Government government;
     private MarketStatistics marketStats;
     private int monthsToSimulate;
-    private List<Double> inflationHistory = new ArrayList<>();
+    private final double[] inflationHistory = new double[3]; // Last three readings, newest last
+    private int inflationReadings;
+    private double initialInflation;
     private double gdp;
     private double previousGDP;
     private double moneySupply;
@@ -25,6 +29,22 @@ public class SimulationEnvironment {
     private double supplyLevel;
 
     private EconomicIndicators economicIndicators;
+    private AgentTraceExporter traceExporter;
+    private ConvergenceMonitor convergenceMonitor;
+    private boolean stopOnConvergence;
+    private ConvergenceStatus terminationReason = ConvergenceStatus.RUNNING;
+    private int monthsSimulated;
+    private boolean firmDynamicsEnabled;
+    private double firmExitThresholdFactor;
+    private double firmEntryBase;
+    private int firmCompactionInterval;
+    private BankingSystem bankingSystem;
+    private double creditSensitivity;
+    private int firmEntries;
+    private int firmExits;
+    private final List<SimulationListener> listeners = new ArrayList<>();
+    private final Random random;
+    private final boolean quiet;
 
     /**
      * Creates a new simulation environment based on configuration file.
@@ -32,7 +52,23 @@ public class SimulationEnvironment {
      * @param configFile Path to the configuration file
      */
     public SimulationEnvironment(String configFile) {
-        this.config = new SimulationConfig(configFile);
+        this(new SimulationConfig(configFile), false);
+    }
+
+    /**
+     * Creates an independent simulation environment from an in-memory configuration.
+     * The environment owns its Government instance, so several can run concurrently.
+     *
+     * @param config Simulation configuration
+     */
+    public SimulationEnvironment(SimulationConfig config) {
+        this(config, true);
+    }
+
+    private SimulationEnvironment(SimulationConfig config, boolean detachedGovernment) {
+        this.config = config;
+        this.quiet = config.isQuiet();
+        this.random = config.hasSimulationSeed() ? new Random(config.getSimulationSeed()) : new Random();
         this.monthsToSimulate = config.getMonthsToSimulate();
         this.marketStats = new MarketStatistics();
 
@@ -45,12 +81,17 @@ public class SimulationEnvironment {
         this.supplyLevel = 1.0; // Initial normalized value
 
         // Load inflation history with initial value
-        inflationHistory.add(config.getInitialInflation());
+        this.initialInflation = config.getInitialInflation();
+        recordInflation(initialInflation);
 
         // Initialize Government Policy
-        PolicyStrategy strategy = new MonetaryPolicyStrategy();
-        Government.createInstance(config.getInitialInterestRate(), config.getInflationTarget(), strategy);
-        this.government = Government.getInstance();
+        PolicyStrategy strategy = new MonetaryPolicyStrategy(!quiet);
+        if (detachedGovernment) {
+            this.government = Government.createDetached(config.getInitialInterestRate(), config.getInflationTarget(), strategy);
+        } else {
+            Government.createInstance(config.getInitialInterestRate(), config.getInflationTarget(), strategy);
+            this.government = Government.getInstance();
+        }
 
         // Initialize Economic Indicators
         this.economicIndicators = new EconomicIndicators(
@@ -62,6 +103,29 @@ public class SimulationEnvironment {
 
         // Initialize Households & Firms
         initializeAgents();
+
+        // Optional credit channel through banks and their loan books
+        if (config.isBankingEnabled()) {
+            this.bankingSystem = new BankingSystem(config, households, firms, government.getInterestRate(), random);
+            this.creditSensitivity = config.getBankCreditSensitivity();
+        }
+
+        // Optional firm entry and exit
+        // Rules are read once here: config lookups parse strings and would allocate every month
+        this.firmDynamicsEnabled = config.isFirmDynamicsEnabled();
+        this.firmExitThresholdFactor = config.getFirmExitThresholdFactor();
+        this.firmEntryBase = config.getFirmCount() * config.getFirmEntryRate();
+        this.firmCompactionInterval = config.getFirmCompactionInterval();
+
+        // Optional convergence detection for early termination
+        if (config.isConvergenceEnabled()) {
+            initializeConvergenceMonitor();
+        }
+
+        // Optional per-agent trajectory export
+        if (config.isTraceEnabled()) {
+            initializeTraceExporter();
+        }
     }
 
     /**
@@ -72,17 +136,53 @@ public class SimulationEnvironment {
                 config.getHouseholdCount(),
                 config.getHouseholdAggressiveProb(),
                 config.getHouseholdConservativeProb(),
-                config.getHouseholdReactiveProb()
+                config.getHouseholdReactiveProb(),
+                random
         );
         this.households = householdFactory.createHouseholds();
 
-        FirmFactory firmFactory = new FirmFactory(
+        // Costs and shocks only matter to features that read firm capital; without them,
+        // leave capital and the shared random stream exactly as in earlier releases
+        boolean capitalMatters = config.isFirmDynamicsEnabled() || config.isBankingEnabled();
+        this.firmFactory = new FirmFactory(
                 config.getFirmCount(),
                 config.getFirmSmallProb(),
                 config.getFirmMediumProb(),
-                config.getFirmLargeProb()
+                config.getFirmLargeProb(),
+                capitalMatters ? config.getFirmOperatingCost() : 0.0,
+                capitalMatters ? config.getFirmShockVolatility() : 0.0,
+                random
         );
-        this.firms = firmFactory.createFirms();
+        this.firms = new FirmPopulation(firmFactory.createFirms());
+    }
+
+    /**
+     * Creates the convergence monitor and decides whether detection stops the run or only flags it.
+     */
+    private void initializeConvergenceMonitor() {
+        String action = config.getConvergenceAction();
+        this.stopOnConvergence = switch (action) {
+            case "stop" -> true;
+            case "flag" -> false;
+            default -> throw new IllegalArgumentException("Unknown convergence action: " + action);
+        };
+        this.convergenceMonitor = new ConvergenceMonitor(config);
+    }
+
+    /**
+     * Starts the agent trace exporter on the sampled population.
+     * Tracing is disabled if the output directory cannot be prepared.
+     */
+    private void initializeTraceExporter() {
+        try {
+            this.traceExporter = new AgentTraceExporter(config, households, firms);
+            if (!quiet) System.out.printf("Agent trace enabled: %d households, %d firms sampled (%s)%n",
+                    traceExporter.getSampledHouseholdCount(), traceExporter.getSampledFirmCount(),
+                    config.getTraceSampleMode());
+        } catch (IOException e) {
+            System.err.println("Error initializing agent trace: " + e.getMessage());
+            this.traceExporter = null;
+        }
     }
 
     /**
@@ -103,6 +203,33 @@ public class SimulationEnvironment {
         return firms;
     }
 
+    /**
+     * Returns the banking sector.
+     *
+     * @return BankingSystem, or null if banking is disabled
+     */
+    public BankingSystem getBankingSystem() {
+        return bankingSystem;
+    }
+
+    /**
+     * Returns the number of firms that entered the market in the last simulated month.
+     *
+     * @return Firm entries, 0 when firm dynamics are disabled
+     */
+    public int getFirmEntries() {
+        return firmEntries;
+    }
+
+    /**
+     * Returns the number of firms that exited the market in the last simulated month.
+     *
+     * @return Firm exits, 0 when firm dynamics are disabled
+     */
+    public int getFirmExits() {
+        return firmExits;
+    }
+
     /**
      * Returns the government entity managing monetary policy.
      *
@@ -121,6 +248,51 @@ public class SimulationEnvironment {
         return employmentRate;
     }
 
+    /**
+     * Returns the month currently being simulated.
+     *
+     * @return Current simulation month
+     */
+    public int getCurrentMonth() {
+        return currentMonth;
+    }
+
+    /**
+     * Returns why the last run ended: HORIZON_REACHED, or the condition that stopped it early.
+     *
+     * @return Termination reason, RUNNING before run() has finished
+     */
+    public ConvergenceStatus getTerminationReason() {
+        return terminationReason;
+    }
+
+    /**
+     * Returns the convergence monitor, which also holds conditions flagged without stopping.
+     *
+     * @return ConvergenceMonitor, or null if convergence monitoring is disabled
+     */
+    public ConvergenceMonitor getConvergenceMonitor() {
+        return convergenceMonitor;
+    }
+
+    /**
+     * Returns the number of months actually simulated by the last run.
+     *
+     * @return Months simulated
+     */
+    public int getMonthsSimulated() {
+        return monthsSimulated;
+    }
+
+    /**
+     * Registers a listener notified at the end of every simulated month.
+     *
+     * @param listener Listener to add
+     */
+    public void addListener(SimulationListener listener) {
+        listeners.add(listener);
+    }
+
     /**
      * Returns the market statistics tracker.
      *
@@ -138,10 +310,22 @@ public class SimulationEnvironment {
      * @return Smoothed inflation rate including historical effects
      */
     private double applyLaggedEffect(double currentInflation) {
-        if (inflationHistory.size() < 3) return currentInflation;
+        if (inflationReadings < 3) return currentInflation;
         return (0.6 * currentInflation) +
-                (0.3 * inflationHistory.get(inflationHistory.size() - 2)) +
-                (0.1 * inflationHistory.get(inflationHistory.size() - 3));
+                (0.3 * inflationHistory[1]) +
+                (0.1 * inflationHistory[0]);
+    }
+
+    /**
+     * Appends a monthly inflation reading, keeping only the three the lag structure needs.
+     *
+     * @param inflation Raw inflation rate for the month
+     */
+    private void recordInflation(double inflation) {
+        inflationHistory[0] = inflationHistory[1];
+        inflationHistory[1] = inflationHistory[2];
+        inflationHistory[2] = inflation;
+        inflationReadings++;
     }
 
     /**
@@ -156,7 +340,7 @@ public class SimulationEnvironment {
      */
     private void updateEconomicIndicators() {
         // Calculate smoothed inflation rate
-        double rawInflation = inflationHistory.get(inflationHistory.size() - 1);
+        double rawInflation = inflationHistory[2];
         double smoothedInflation = applyLaggedEffect(rawInflation);
 
         // Calculate GDP growth based on firm and household activity
@@ -188,15 +372,20 @@ public class SimulationEnvironment {
      */
     private double calculateGDPGrowthRate() {
         double interestEffect = 1.0 - (government.getInterestRate() / 20.0); // Higher interest rates slow growth
-        double inflationRate = inflationHistory.get(inflationHistory.size() - 1);
+        double inflationRate = inflationHistory[2];
         double inflationEffect = (inflationRate > 3.0) ? 1.0 - ((inflationRate - 3.0) / 20.0) : 1.0;
 
         // Base growth rate affected by interest rates and inflation
         double baseGrowthRate = 0.01; // 1% base growth
         double adjustedGrowthRate = baseGrowthRate * interestEffect * inflationEffect;
 
+        // Credit expansion adds to growth, a credit crunch subtracts from it
+        if (bankingSystem != null) {
+            adjustedGrowthRate += creditSensitivity * bankingSystem.getCreditGrowth();
+        }
+
         // Random economic shocks (both positive and negative)
-        double randomShock = (new Random().nextDouble() - 0.5) * 0.01; // -0.5% to +0.5%
+        double randomShock = (random.nextDouble() - 0.5) * 0.01; // -0.5% to +0.5%
 
         return Math.max(-0.05, Math.min(adjustedGrowthRate + randomShock, 0.1)); // Limit to -5% to 10%
     }
@@ -221,7 +410,8 @@ public class SimulationEnvironment {
     }
 
     /**
-     * Updates consumer demand based on inflation, interest rates, and employment.
+     * Updates consumer demand based on inflation, interest rates, employment and,
+     * with banking enabled, the change in household debt service.
      *
      * @param inflation Current inflation rate
      * @return Updated consumer demand index (normalized value)
@@ -236,9 +426,12 @@ public class SimulationEnvironment {
 
         // Calculate new demand (normalized to approx 0.5-1.5 range)
         double newDemand = consumerDemand * interestEffect * inflationEffect * employmentEffect;
+        if (bankingSystem != null) {
+            newDemand *= bankingSystem.getDebtServiceEffect();
+        }
 
         // Add random market sentiment
-        double sentiment = 0.95 + (new Random().nextDouble() * 0.1); // 0.95 to 1.05
+        double sentiment = 0.95 + (random.nextDouble() * 0.1); // 0.95 to 1.05
         newDemand *= sentiment;
 
         // Constrain to reasonable range
@@ -267,49 +460,184 @@ public class SimulationEnvironment {
 
     /**
      * Runs the complete economic simulation for the configured number of months.
+     * Registered listeners are notified after each month; in quiet mode no reports are printed.
+     * With convergence monitoring in "stop" mode the run ends as soon as a steady state,
+     * limit cycle or divergence is detected.
      */
     public void run() {
-        // Print simulation initialization summary
+        if (!quiet) printInitializationSummary();
+
+        terminationReason = ConvergenceStatus.HORIZON_REACHED;
+        monthsSimulated = 0;
+        try {
+            // Run monthly simulation
+            for (int i = 0; i < monthsToSimulate; i++) {
+                if (!step()) {
+                    break;
+                }
+            }
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Flushes and stops the agent trace exporter, if any. Called at the end of run();
+     * callers that build an environment but never run it must call it themselves.
+     * Calling it more than once has no further effect.
+     */
+    public void close() {
+        if (traceExporter != null) {
+            traceExporter.close();
+            traceExporter = null;
+        }
+    }
+
+    /**
+     * Simulates a single month. In quiet mode with tracing and firm dynamics disabled,
+     * the steady-state month allocates nothing, with or without banking: agents and
+     * indicators are updated in place, loops are indexed and no reports are formatted.
+     *
+     * @return false if the convergence monitor asked to stop the run
+     */
+    public boolean step() {
+        advanceTime();
+        monthsSimulated++;
+        if (!quiet) System.out.println("=== Simulation Month " + currentMonth + " ===");
+
+        // Run agents
+        for (int i = 0; i < households.size(); i++) {
+            households.get(i).act(this);
+        }
+        for (int i = 0; i < firms.size(); i++) {
+            firms.get(i).act(this);
+        }
+        if (bankingSystem != null) {
+            bankingSystem.step(this);
+        }
+        if (traceExporter != null) {
+            traceExporter.record(currentMonth);
+        }
+
+        if (!quiet) printMonthlyReport();
+
+        // Calculate and update state
+        double currentInflation = marketStats.calculateInflation(firms);
+        recordInflation(currentInflation);
+        updateEconomicIndicators();
+        government.updatePolicy(economicIndicators);
+
+        if (firmDynamicsEnabled) updateFirmPopulation();
+
+        if (!quiet) printMonthSummary();
+
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onMonthCompleted(this);
+        }
+
+        return convergenceMonitor == null || !checkConvergence();
+    }
+
+    /**
+     * Applies the firm exit and entry rules at the end of the month.
+     * Firms whose capital has fallen below their threshold exit; entrants arrive at a
+     * rate that rises with consumer demand and falls with the interest rate.
+     */
+    private void updateFirmPopulation() {
+        firmExits = 0;
+        // Sweep from the end so the firm swapped into a freed slot has already been checked
+        for (int i = firms.size() - 1; i >= 0; i--) {
+            Firm firm = firms.get(i);
+            if (firm.getCapital() < firm.getThreshold() * firmExitThresholdFactor) {
+                firms.swapRemove(i);
+                firm.deactivate();
+                firmExits++;
+            }
+        }
+
+        // Entry scales with the configured market size so an emptied market can recover
+        double interestEffect = Math.max(0.0, Math.min(1.0, 1.0 - (government.getInterestRate() / 20.0)));
+        double expectedEntrants = firmEntryBase * consumerDemand * interestEffect;
+        firmEntries = (int) expectedEntrants + (random.nextDouble() < expectedEntrants % 1.0 ? 1 : 0);
+        for (int i = 0; i < firmEntries; i++) {
+            Firm entrant = firmFactory.createEntrant();
+            firms.add(entrant);
+            if (traceExporter != null) {
+                traceExporter.onFirmEntered(entrant);
+            }
+        }
+
+        if (firmCompactionInterval > 0 && monthsSimulated % firmCompactionInterval == 0) {
+            firms.compact();
+        }
+    }
+
+    /**
+     * Feeds this month's indicators to the convergence monitor.
+     *
+     * @return true if the run should stop now
+     */
+    private boolean checkConvergence() {
+        if (convergenceMonitor.getStatus() != ConvergenceStatus.RUNNING) return false; // Already flagged
+
+        double gdpGrowth = (gdp - previousGDP) / previousGDP * 100;
+        ConvergenceStatus status = convergenceMonitor.evaluate(currentMonth,
+                economicIndicators.getCurrentInflation(), government.getInterestRate(), gdpGrowth);
+        if (status == ConvergenceStatus.RUNNING) return false;
+
+        if (!quiet) {
+            System.out.println((stopOnConvergence ? "Simulation stopped early: " : "Convergence flagged: ")
+                    + convergenceMonitor.describe());
+        }
+        if (stopOnConvergence) {
+            terminationReason = status;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Prints the starting conditions of the simulation.
+     */
+    private void printInitializationSummary() {
         System.out.println("=== ECONOMIC SIMULATION INITIALIZATION ===");
         System.out.printf("• Start Month:           %d%n", currentMonth);
         System.out.printf("• Months to Simulate:    %d%n", monthsToSimulate);
         System.out.printf("• Initial GDP:           $%.2f billion%n", gdp / 1000);
-        System.out.printf("• Initial Inflation:     %.2f%%%n", inflationHistory.get(0));
+        System.out.printf("• Initial Inflation:     %.2f%%%n", initialInflation);
         System.out.printf("• Inflation Target:      %.2f%%%n", config.getInflationTarget());
         System.out.printf("• Initial Interest Rate: %.2f%%%n", government.getInterestRate());
         System.out.printf("• Initial Employment:    %.2f%%%n", employmentRate);
         System.out.printf("• Consumer Demand:       %.2f (index)%n", consumerDemand);
         System.out.printf("• Supply Level:          %.2f (index)%n%n", supplyLevel);
+    }
 
-        // Run monthly simulation
-        for (int i = 0; i < monthsToSimulate; i++) {
-            advanceTime();
-            System.out.println("=== Simulation Month " + currentMonth + " ===");
-
-            // Run agents
-            for (Household household : households) {
-                household.act(this);
-            }
-            for (Firm firm : firms) {
-                firm.act(this);
-            }
+    /**
+     * Prints the economic report for the current month before indicators are updated.
+     */
+    private void printMonthlyReport() {
+        System.out.printf("=== MONTH %d ECONOMIC REPORT ===%n", currentMonth);
+        System.out.printf("• Inflation Rate:   %.2f%%%n", economicIndicators.getCurrentInflation());
+        System.out.printf("• Interest Rate:    %.2f%%%n", government.getInterestRate());
+        System.out.printf("• GDP:              $%.2f billions%n", gdp / 1000);
+        System.out.printf("• Consumer Demand:  %.2f (index)%n", consumerDemand);
+        System.out.printf("• Supply Level:     %.2f (index)%n%n", supplyLevel);
+    }
 
-            System.out.printf("=== MONTH %d ECONOMIC REPORT ===%n", currentMonth);
-            System.out.printf("• Inflation Rate:   %.2f%%%n", economicIndicators.getCurrentInflation());
-            System.out.printf("• Interest Rate:    %.2f%%%n", government.getInterestRate());
-            System.out.printf("• GDP:              $%.2f billions%n", gdp / 1000);
-            System.out.printf("• Consumer Demand:  %.2f (index)%n", consumerDemand);
-            System.out.printf("• Supply Level:     %.2f (index)%n%n", supplyLevel);
-
-            // Calculate and update state
-            double currentInflation = marketStats.calculateInflation(firms);
-            inflationHistory.add(currentInflation);
-            updateEconomicIndicators();
-            government.updatePolicy(economicIndicators);
-
-            System.out.printf("Month %d Summary: Inflation = %.2f%%, Interest Rate = %.2f%%, GDP = %.2f, Employment = %.2f%%%n%n",
-                    currentMonth, economicIndicators.getCurrentInflation(), government.getInterestRate(),
-                    gdp, employmentRate);
+    /**
+     * Prints the one-line summary for the current month after indicators are updated.
+     */
+    private void printMonthSummary() {
+        System.out.printf("Month %d Summary: Inflation = %.2f%%, Interest Rate = %.2f%%, GDP = %.2f, Employment = %.2f%%%n%n",
+                currentMonth, economicIndicators.getCurrentInflation(), government.getInterestRate(),
+                gdp, employmentRate);
+        if (bankingSystem != null) {
+            System.out.printf("Credit: outstanding %.2f | new lending %.2f | defaults %d (losses %.2f) | bank capital ratio %.2f%%%n%n",
+                    bankingSystem.getOutstanding(), bankingSystem.getMonthlyNewLending(), bankingSystem.getMonthlyDefaults(),
+                    bankingSystem.getMonthlyLosses(), bankingSystem.getCapitalRatio() * 100);
+        }
+        if (firmDynamicsEnabled) {
+            System.out.printf("Firms: %d active (%d entered, %d exited)%n%n", firms.size(), firmEntries, firmExits);
         }
     }
 
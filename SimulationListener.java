@@ -0,0 +1,3 @@
+public interface SimulationListener {
+    void onMonthCompleted(SimulationEnvironment env);
+}